@@ -0,0 +1,119 @@
+package CLD;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Random;
+
+/**
+ * Synthetic inputs shared by the benchmarks, and a Terminal wired to discard its output.
+ */
+final class BenchmarkFiles {
+    static final PrintStream NULL_OUT = new PrintStream(OutputStream.nullOutputStream());
+
+    private BenchmarkFiles() {
+    }
+
+    // A Terminal whose current directory is dir
+    static Terminal terminalIn(Path dir) {
+        Terminal terminal = new Terminal();
+        terminal.runLine("cd \"" + dir + "\"");
+        return terminal;
+    }
+
+    // Runs one command with output discarded; returns its exit status
+    static int run(Terminal terminal, String command, String... args) {
+        ExecutionContext io = new ExecutionContext(null, NULL_OUT, NULL_OUT, Path.of(terminal.pwd()));
+        terminal.chooseCommandAction(io, command, args);
+        return io.status();
+    }
+
+    // Log-like text: lines of words of varying length, deterministic for a given size
+    static void writeTextFile(Path file, long size) throws IOException {
+        Random random = new Random(42);
+        String[] words = {"GET", "POST", "/api/v1/items", "200", "404", "user=alice", "latency_ms=17",
+                "INFO", "WARN", "request", "completed", "in", "\t", "session"};
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16)) {
+            long written = 0;
+            StringBuilder line = new StringBuilder();
+            while (written < size) {
+                line.setLength(0);
+                int count = 4 + random.nextInt(12);
+                for (int i = 0; i < count; i++) {
+                    if (i > 0) line.append(' ');
+                    line.append(words[random.nextInt(words.length)]);
+                }
+                line.append('\n');
+                byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+                int n = (int) Math.min(bytes.length, size - written);
+                out.write(bytes, 0, n);
+                written += n;
+            }
+        }
+    }
+
+    /**
+     * "wide": one directory with 10,000 files; "deep": a chain of 100 nested directories
+     * with 10 files each. Every file is 1 KB.
+     */
+    static void createTree(Path root, String shape) throws IOException {
+        byte[] content = new byte[1024];
+        new Random(7).nextBytes(content);
+        Files.createDirectories(root);
+
+        if (shape.equals("wide")) {
+            for (int i = 0; i < 10_000; i++) {
+                Files.write(root.resolve("file" + i + ".dat"), content);
+            }
+        } else if (shape.equals("deep")) {
+            Path dir = root;
+            for (int depth = 0; depth < 100; depth++) {
+                dir = Files.createDirectories(dir.resolve("level" + depth));
+                for (int i = 0; i < 10; i++) {
+                    Files.write(dir.resolve("file" + i + ".dat"), content);
+                }
+            }
+        } else {
+            throw new IllegalArgumentException("Unknown tree shape: " + shape);
+        }
+    }
+
+    static void createEmptyFiles(Path dir, int count) throws IOException {
+        Files.createDirectories(dir);
+        for (int i = 0; i < count; i++) {
+            Files.createFile(dir.resolve(String.format("entry%07d", i)));
+        }
+    }
+
+    static void deleteTree(Path root) throws IOException {
+        if (!Files.exists(root)) return;
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    static long parseSize(String size) {
+        String s = size.toUpperCase();
+        if (s.endsWith("GB")) return Long.parseLong(s.substring(0, s.length() - 2)) << 30;
+        if (s.endsWith("MB")) return Long.parseLong(s.substring(0, s.length() - 2)) << 20;
+        if (s.endsWith("KB")) return Long.parseLong(s.substring(0, s.length() - 2)) << 10;
+        return Long.parseLong(s);
+    }
+}
@@ -0,0 +1,70 @@
+package CLD;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 'cp' of a single 64 MB file and 'cp -r' of wide and deep synthetic trees.
+ * Every invocation copies to a fresh destination; copies are removed after each iteration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CopyBenchmark {
+    @Param({"wide", "deep"})
+    public String shape;
+
+    private Path dir;
+    private Path copies;
+    private Terminal terminal;
+    private int counter;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("bench-copy");
+        BenchmarkFiles.createTree(dir.resolve("tree"), shape);
+        BenchmarkFiles.writeTextFile(dir.resolve("single.dat"), 64L << 20);
+        copies = Files.createDirectories(dir.resolve("copies"));
+        terminal = BenchmarkFiles.terminalIn(dir);
+    }
+
+    @TearDown(Level.Iteration)
+    public void removeCopies() throws IOException {
+        BenchmarkFiles.deleteTree(copies);
+        Files.createDirectories(copies);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkFiles.deleteTree(dir);
+    }
+
+    @Benchmark
+    public int copyFile() {
+        return BenchmarkFiles.run(terminal, "cp", "single.dat", "copies/single" + (counter++) + ".dat");
+    }
+
+    @Benchmark
+    public int copyTree() {
+        return BenchmarkFiles.run(terminal, "cp", "-r", "tree", "copies/tree" + (counter++));
+    }
+}
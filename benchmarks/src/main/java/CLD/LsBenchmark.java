@@ -0,0 +1,71 @@
+package CLD;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 'ls' on directories of empty files. Sorted listings of up to 10,000 entries are served from
+ * the directory cache after the first call; lsUncached clears it first to measure the disk path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LsBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    public int entries;
+
+    private Path dir;
+    private Terminal terminal;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("bench-ls");
+        BenchmarkFiles.createEmptyFiles(dir.resolve("entries"), entries);
+        terminal = BenchmarkFiles.terminalIn(dir);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkFiles.deleteTree(dir);
+    }
+
+    @Benchmark
+    public int lsSorted() {
+        return BenchmarkFiles.run(terminal, "ls", "entries");
+    }
+
+    @Benchmark
+    public int lsUncached() {
+        BenchmarkFiles.run(terminal, "dircache", "clear");
+        return BenchmarkFiles.run(terminal, "ls", "entries");
+    }
+
+    @Benchmark
+    public int lsUnsorted() {
+        return BenchmarkFiles.run(terminal, "ls", "-U", "entries");
+    }
+
+    @Benchmark
+    public int lsLong() {
+        return BenchmarkFiles.run(terminal, "ls", "-lU", "entries");
+    }
+}
@@ -0,0 +1,53 @@
+package CLD;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+    private static final String SHORT_LINE = "ls -l build";
+    private Parser parser;
+    private String longLine;
+
+    @Setup
+    public void setup() {
+        parser = new Parser();
+        StringBuilder line = new StringBuilder("cat");
+        for (int i = 0; i < 50; i++) {
+            line.append(" \"logs/app server ").append(i).append(".log\"");
+        }
+        line.append(" | wc -l >> \"reports/line counts.txt\"");
+        longLine = line.toString();
+    }
+
+    @Benchmark
+    public boolean parseShort() {
+        return parser.parse(SHORT_LINE);
+    }
+
+    @Benchmark
+    public boolean parseLong() {
+        return parser.parse(longLine);
+    }
+
+    // A fresh parser has an empty cache, so this measures the tokenizer itself
+    @Benchmark
+    public boolean parseLongUncached() {
+        return new Parser().parse(longLine);
+    }
+}
@@ -0,0 +1,78 @@
+package CLD;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Wall time of a fresh 'java -jar cli.jar -c "..."' process, from launch to exit: without any
+ * class data sharing, with only the JDK's default archive, and with the AppCDS archive the build
+ * writes next to cli.jar. Run from the project root, or point -Dcli.jar at the jar.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StartupBenchmark {
+    @Param({"off", "default", "app"})
+    public String cds;
+
+    @Param({"pwd", "ls"})
+    public String command;
+
+    private ProcessBuilder launch;
+
+    @Setup
+    public void setup() {
+        File jar = new File(System.getProperty("cli.jar", "cli/target/cli.jar")).getAbsoluteFile();
+        File archive = new File(jar.getParentFile(), "cli.jsa");
+        if (!jar.isFile()) {
+            throw new IllegalStateException("Not found: " + jar + " (build with mvn package, or set -Dcli.jar)");
+        }
+
+        List<String> commandLine = new ArrayList<>();
+        commandLine.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        switch (cds) {
+            case "off":
+                commandLine.add("-Xshare:off");
+                break;
+            case "app":
+                if (!archive.isFile()) {
+                    throw new IllegalStateException("Not found: " + archive + " (built by mvn package unless -Dcds.skip)");
+                }
+                commandLine.add("-XX:SharedArchiveFile=" + archive);
+                break;
+            default:
+                break;
+        }
+        commandLine.add("-jar");
+        commandLine.add(jar.getPath());
+        commandLine.add("-c");
+        commandLine.add(command);
+
+        launch = new ProcessBuilder(commandLine)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.DISCARD);
+    }
+
+    @Benchmark
+    public int startCommand() throws IOException, InterruptedException {
+        return launch.start().waitFor();
+    }
+}
@@ -0,0 +1,79 @@
+package CLD;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 'wc', 'cat', 'grep', 'head' and 'tail' over a log-like text file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TextFileBenchmark {
+    @Param({"1MB", "1GB"})
+    public String size;
+
+    private Path dir;
+    private Terminal terminal;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("bench-text");
+        BenchmarkFiles.writeTextFile(dir.resolve("input.log"), BenchmarkFiles.parseSize(size));
+        terminal = BenchmarkFiles.terminalIn(dir);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkFiles.deleteTree(dir);
+    }
+
+    @Benchmark
+    public int wc() {
+        return BenchmarkFiles.run(terminal, "wc", "input.log");
+    }
+
+    @Benchmark
+    public int wcLines() {
+        return BenchmarkFiles.run(terminal, "wc", "-l", "input.log");
+    }
+
+    @Benchmark
+    public int grepCount() {
+        return BenchmarkFiles.run(terminal, "grep", "-c", "latency_ms=17", "input.log");
+    }
+
+    @Benchmark
+    public int cat() {
+        return BenchmarkFiles.run(terminal, "cat", "input.log");
+    }
+
+    @Benchmark
+    public int head() {
+        return BenchmarkFiles.run(terminal, "head", "-n", "100", "input.log");
+    }
+
+    @Benchmark
+    public int tail() {
+        return BenchmarkFiles.run(terminal, "tail", "-n", "100", "input.log");
+    }
+}
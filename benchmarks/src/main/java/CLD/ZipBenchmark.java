@@ -0,0 +1,73 @@
+package CLD;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 'zip -r' of a synthetic tree, 'zip -ru' of the same unchanged tree and 'unzip' of the resulting archive.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ZipBenchmark {
+    @Param({"wide", "deep"})
+    public String shape;
+
+    private Path dir;
+    private Terminal terminal;
+    private int counter;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("bench-zip");
+        BenchmarkFiles.createTree(dir.resolve("tree"), shape);
+        terminal = BenchmarkFiles.terminalIn(dir);
+        BenchmarkFiles.run(terminal, "zip", "-r", "fixture.zip", "tree");
+        Files.createDirectories(dir.resolve("out"));
+    }
+
+    @TearDown(Level.Iteration)
+    public void removeOutputs() throws IOException {
+        BenchmarkFiles.deleteTree(dir.resolve("out"));
+        Files.createDirectories(dir.resolve("out"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkFiles.deleteTree(dir);
+    }
+
+    @Benchmark
+    public int zipTree() {
+        return BenchmarkFiles.run(terminal, "zip", "-r", "out/archive" + (counter++) + ".zip", "tree");
+    }
+
+    @Benchmark
+    public int updateUnchanged() {
+        return BenchmarkFiles.run(terminal, "zip", "-ru", "fixture.zip", "tree");
+    }
+
+    @Benchmark
+    public int unzipArchive() {
+        return BenchmarkFiles.run(terminal, "unzip", "fixture.zip", "-d", "out/extract" + (counter++));
+    }
+}
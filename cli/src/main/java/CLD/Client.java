@@ -0,0 +1,102 @@
+package CLD;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Minimal client for {@link Server}: sends its arguments as one command line, or its standard
+ * input line by line if there are none, and copies the session's output to standard output.
+ * Every argument stays one word, so 'Client sock cat "my file.txt"' works; operators such as '|'
+ * or '&&' given as arguments of their own keep their meaning.
+ *
+ * Usage: Client <port | socket path> [command...]
+ */
+public class Client {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: Client <port | socket path> [command...]");
+            System.exit(2);
+        }
+
+        SocketAddress address = Server.parseAddress(args[0]);
+        SocketChannel channel;
+        try {
+            channel = SocketChannel.open(address);
+        } catch (IOException e) {
+            System.err.println("Error: Cannot connect to " + address + ": " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        try (channel) {
+            if (args.length > 1) {
+                String line = commandLine(Arrays.copyOfRange(args, 1, args.length)) + "\n";
+                try {
+                    writeFully(channel, ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8)));
+                    channel.shutdownOutput();
+                } catch (IOException e) {
+                    // rejected or closed by the server; what it sent before is still read below
+                }
+            } else {
+                // plain channel reads and writes, since channel streams may lock each other out
+                Threads.start("client-input", () -> {
+                    byte[] buffer = new byte[BUFFER_SIZE];
+                    try {
+                        int n;
+                        while ((n = System.in.read(buffer)) != -1) {
+                            writeFully(channel, ByteBuffer.wrap(buffer, 0, n));
+                        }
+                        channel.shutdownOutput(); // end of script: the session finishes and closes
+                    } catch (IOException ignored) {
+                        // the server closed the connection first
+                    }
+                });
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            try {
+                while (channel.read(buffer) != -1) {
+                    System.out.write(buffer.array(), 0, buffer.position());
+                    System.out.flush();
+                    buffer.clear();
+                }
+            } catch (IOException e) {
+                System.out.flush();
+                System.err.println("Error: Connection lost: " + e.getMessage());
+                System.exit(1);
+            }
+        }
+    }
+
+    // The arguments joined into a line the server's parser splits back into the same words
+    static String commandLine(String[] args) {
+        StringBuilder line = new StringBuilder();
+        for (String arg : args) {
+            if (line.length() > 0) line.append(' ');
+            line.append(quote(arg));
+        }
+        return line.toString();
+    }
+
+    // Single-quotes a word with whitespace or quotes in it; a ' inside becomes "'" between two quoted parts
+    static String quote(String word) {
+        boolean plain = !word.isEmpty()
+                && word.chars().noneMatch(c -> c == '"' || c == '\'' || Character.isWhitespace(c));
+        if (plain) {
+            return word;
+        }
+        return "'" + word.replace("'", "'\"'\"'") + "'";
+    }
+
+    private static void writeFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package CLD;
+
+/**
+ * A builtin command, as registered in the CommandRegistry.
+ * Implementations report failures through ExecutionContext.error()/fail()
+ * and the bytes they move through its counters.
+ */
+@FunctionalInterface
+interface Command {
+    void execute(ExecutionContext io, String[] args) throws Exception;
+}
@@ -0,0 +1,79 @@
+package CLD;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Parsed form of one input line: pipelines joined by ';', '&&' or '||', each possibly sent to the
+ * background with '&'.
+ * Instances are immutable, so the parser can hand the same one out every time a line repeats.
+ */
+final class CommandLine {
+    enum Connector {
+        SEQUENCE, // ';' - always run the next pipeline
+        AND,      // '&&' - run it only if the previous one succeeded
+        OR        // '||' - run it only if the previous one failed
+    }
+
+    static final class Pipeline {
+        final List<String[]> stages; // each the command name followed by its arguments
+        final String redirectFile;   // output of the last stage, or null for the terminal
+        final boolean append;
+        final boolean background;    // ended with '&'
+
+        Pipeline(List<String[]> stages, String redirectFile, boolean append, boolean background) {
+            this.stages = Collections.unmodifiableList(stages);
+            this.redirectFile = redirectFile;
+            this.append = append;
+            this.background = background;
+        }
+
+        // The pipeline as it would be typed, for job listings
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder();
+            for (String[] stage : stages) {
+                if (text.length() > 0) text.append(" | ");
+                for (int i = 0; i < stage.length; i++) {
+                    if (i > 0) text.append(' ');
+                    boolean quote = stage[i].isEmpty() || stage[i].chars().anyMatch(c -> " \t|;&>'".indexOf(c) >= 0);
+                    text.append(quote ? '"' + stage[i] + '"' : stage[i]);
+                }
+            }
+            if (redirectFile != null) text.append(append ? " >> " : " > ").append(redirectFile);
+            return text.toString();
+        }
+
+        // Whether a stage is a 'tail -f', which never ends until it is killed
+        boolean follows() {
+            for (String[] stage : stages) {
+                if (!stage[0].equals("tail")) continue;
+                for (int i = 1; i < stage.length; i++) {
+                    if (stage[i].equals("-f")) return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private final Pipeline[] pipelines;
+    private final Connector[] connectors; // connectors[i] joins pipelines[i - 1] and pipelines[i]
+
+    CommandLine(List<Pipeline> pipelines, List<Connector> connectors) {
+        this.pipelines = pipelines.toArray(new Pipeline[0]);
+        this.connectors = connectors.toArray(new Connector[0]);
+    }
+
+    int size() {
+        return pipelines.length;
+    }
+
+    Pipeline pipeline(int i) {
+        return pipelines[i];
+    }
+
+    // How pipeline i is joined to the one before it; SEQUENCE for the first
+    Connector connector(int i) {
+        return connectors[i];
+    }
+}
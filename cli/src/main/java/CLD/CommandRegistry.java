@@ -0,0 +1,107 @@
+package CLD;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Name-to-handler table for the builtins. Each command is resolved once at registration
+ * and carries its own CommandStats, so dispatch is a single map lookup.
+ */
+final class CommandRegistry {
+    static final class Registration {
+        final String name;
+        final Command command;
+        final CommandStats stats = new CommandStats();
+
+        Registration(String name, Command command) {
+            this.name = name;
+            this.command = command;
+        }
+    }
+
+    // insertion order, so 'stats' lists commands the way they were registered
+    private final Map<String, Registration> commands = new LinkedHashMap<>();
+
+    void register(String name, Command command) {
+        commands.put(name, new Registration(name, command));
+    }
+
+    // Returns null for an unknown command
+    Registration lookup(String name) {
+        return commands.get(name);
+    }
+
+    Iterable<Registration> all() {
+        return commands.values();
+    }
+
+    /**
+     * Runs the command and records its latency, outcome and byte counts, also as a flight recorder event.
+     */
+    void execute(Registration registration, ExecutionContext io, String[] args) throws Exception {
+        FlightEvents.Command event = FlightEvents.command();
+        long readBefore = io.bytesRead().sum();
+        long writtenBefore = io.bytesWritten().sum();
+        long start = System.nanoTime();
+        try {
+            registration.command.execute(io, args);
+        } catch (Throwable e) {
+            // a command that threw hasn't set its status; fail it here so '&&', '||', -e, the stats
+            // and the event all see the same outcome
+            io.fail();
+            throw e;
+        } finally {
+            registration.stats.record(System.nanoTime() - start, io.status() != 0,
+                    io.bytesRead().sum() - readBefore, io.bytesWritten().sum() - writtenBefore);
+            if (event != null) event.commit(registration.name, args, io.status());
+        }
+    }
+
+    String report() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("%-10s %8s %7s %10s %10s %10s %12s %12s%n",
+                "command", "calls", "errors", "p50", "p99", "max", "read", "written"));
+        for (Registration r : commands.values()) {
+            CommandStats s = r.stats;
+            if (s.calls() == 0) continue;
+            out.append(String.format("%-10s %8d %7d %10s %10s %10s %12d %12d%n", r.name, s.calls(), s.errors(),
+                    formatNanos(s.percentileNanos(50)), formatNanos(s.percentileNanos(99)), formatNanos(s.maxNanos()),
+                    s.bytesRead(), s.bytesWritten()));
+        }
+        return out.toString();
+    }
+
+    String reportJson() {
+        StringBuilder out = new StringBuilder("{\"commands\":{");
+        boolean first = true;
+        for (Registration r : commands.values()) {
+            CommandStats s = r.stats;
+            if (s.calls() == 0) continue;
+            if (!first) out.append(',');
+            first = false;
+            out.append('"').append(r.name).append("\":{")
+                    .append("\"calls\":").append(s.calls())
+                    .append(",\"errors\":").append(s.errors())
+                    .append(",\"p50_ns\":").append(s.percentileNanos(50))
+                    .append(",\"p99_ns\":").append(s.percentileNanos(99))
+                    .append(",\"max_ns\":").append(s.maxNanos())
+                    .append(",\"bytes_read\":").append(s.bytesRead())
+                    .append(",\"bytes_written\":").append(s.bytesWritten())
+                    .append('}');
+        }
+        return out.append("}}").toString();
+    }
+
+    void reset() {
+        for (Registration r : commands.values()) {
+            r.stats.reset();
+        }
+    }
+
+    private static String formatNanos(long nanos) {
+        if (nanos < 1_000) return nanos + " ns";
+        if (nanos < 1_000_000) return String.format("%.1f us", nanos / 1e3);
+        if (nanos < 1_000_000_000) return String.format("%.1f ms", nanos / 1e6);
+        return String.format("%.2f s", nanos / 1e9);
+    }
+}
@@ -0,0 +1,244 @@
+package CLD;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * File copy used by 'cp' and 'cp -r'.
+ * Data is moved with FileChannel.transferTo so the kernel can copy it without passing it through
+ * the Java heap; a large direct buffer is used for whatever transferTo cannot move
+ * (e.g. files whose reported size is 0). Timestamps and permissions are copied to the target.
+ * Directory trees are copied in parallel on a fork/join pool.
+ */
+final class CopyEngine {
+    private static final int FALLBACK_BUFFER_SIZE = 1024 * 1024;
+    static final int DEFAULT_MAX_OPEN_FILES = 64;
+    // Allocated once per copying thread, and only by threads that ever need the fallback
+    private static final ThreadLocal<ByteBuffer> FALLBACK_BUFFER =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(FALLBACK_BUFFER_SIZE));
+
+    private CopyEngine() {
+    }
+
+    /**
+     * Copies the contents and attributes of a regular file, replacing the target if it exists.
+     * Returns the number of bytes copied.
+     */
+    static long copyFile(File source, File destination) throws IOException {
+        return copyFile(source.toPath(), destination.toPath());
+    }
+
+    /**
+     * Same for paths, which may name an entry of a mounted zip archive. Those are streamed through
+     * the inflater instead: a FileChannel on a compressed entry makes the zip filesystem extract it
+     * to a temporary file first.
+     */
+    static long copyFile(Path src, Path dst) throws IOException {
+        FlightEvents.FileTransfer event = FlightEvents.fileTransfer();
+        long copied;
+
+        if (src.getFileSystem() != FileSystems.getDefault()) {
+            try (InputStream in = Files.newInputStream(src);
+                 OutputStream out = Files.newOutputStream(dst)) {
+                copied = in.transferTo(out);
+            }
+            copyAttributes(src, dst);
+            if (event != null) event.commit("copy", src.toUri(), copied);
+            return copied;
+        }
+
+        try (FileChannel in = FileChannel.open(src, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(dst, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+                long n = in.transferTo(position, size - position, out);
+                if (n <= 0) break;
+                position += n;
+            }
+            // files that report a size of 0, e.g. under /proc, or a transferTo that gave up early
+            copied = position < size || size == 0 ? position + copyBuffered(in, out, position) : position;
+        }
+
+        copyAttributes(src, dst);
+        if (event != null) event.commit("copy", src, copied);
+        return copied;
+    }
+
+    /**
+     * Copies last-modified/last-access times and permissions from source to destination.
+     * For directories this should be called after the children are copied,
+     * since creating them updates the directory's modification time.
+     */
+    static void copyAttributes(File source, File destination) throws IOException {
+        copyAttributes(source.toPath(), destination.toPath());
+    }
+
+    private static void copyAttributes(Path src, Path dst) throws IOException {
+        PosixFileAttributeView posixTarget = Files.getFileAttributeView(dst, PosixFileAttributeView.class);
+        BasicFileAttributes attrs;
+
+        if (posixTarget != null && src.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            PosixFileAttributes posix = Files.readAttributes(src, PosixFileAttributes.class);
+            posixTarget.setPermissions(posix.permissions());
+            attrs = posix;
+        } else if (posixTarget != null) {
+            // e.g. a zip entry, which has no permissions to carry over
+            attrs = Files.readAttributes(src, BasicFileAttributes.class);
+        } else {
+            attrs = Files.readAttributes(src, BasicFileAttributes.class);
+            File s = src.toFile();
+            File d = dst.toFile();
+            d.setExecutable(s.canExecute());
+            d.setReadable(s.canRead());
+            d.setWritable(s.canWrite());
+        }
+
+        Files.getFileAttributeView(dst, BasicFileAttributeView.class)
+                .setTimes(attrs.lastModifiedTime(), attrs.lastAccessTime(), null);
+    }
+
+    /**
+     * Copies a directory tree in parallel. Each directory is created before any of its children
+     * are scheduled, and at most maxOpenFiles file copies are in progress at any time.
+     * Failures don't stop the copy; every one is returned as a "path: message" line.
+     * The number of bytes copied is added to bytesCopied.
+     */
+    static List<String> copyTree(File source, File destination, int maxOpenFiles, LongAdder bytesCopied) {
+        Queue<String> errors = new ConcurrentLinkedQueue<>();
+        Semaphore openFiles = new Semaphore(maxOpenFiles);
+        int parallelism = Math.min(maxOpenFiles, Runtime.getRuntime().availableProcessors() * 4);
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, parallelism));
+
+        try {
+            pool.invoke(new DirectoryCopy(source, destination, openFiles, errors, bytesCopied));
+        } finally {
+            pool.shutdown();
+        }
+        return new ArrayList<>(errors);
+    }
+
+    private static final class DirectoryCopy extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final File source;
+        private final File destination;
+        private final Semaphore openFiles;
+        private final Queue<String> errors;
+        private final LongAdder bytesCopied;
+
+        DirectoryCopy(File source, File destination, Semaphore openFiles, Queue<String> errors, LongAdder bytesCopied) {
+            this.source = source;
+            this.destination = destination;
+            this.openFiles = openFiles;
+            this.errors = errors;
+            this.bytesCopied = bytesCopied;
+        }
+
+        @Override
+        protected void compute() {
+            if (!destination.isDirectory() && !destination.mkdirs()) {
+                errors.add(destination.getPath() + ": cannot create directory");
+                return;
+            }
+
+            FlightEvents.DirectoryScan event = FlightEvents.directoryScan();
+            File[] children = source.listFiles();
+            if (children == null) {
+                errors.add(source.getPath() + ": cannot list directory");
+                return;
+            }
+            if (event != null) event.commit("cp", source, children.length);
+
+            List<RecursiveAction> tasks = new ArrayList<>(children.length);
+            for (File child : children) {
+                File target = new File(destination, child.getName());
+                if (child.isDirectory()) {
+                    tasks.add(new DirectoryCopy(child, target, openFiles, errors, bytesCopied));
+                } else {
+                    tasks.add(new FileCopy(child, target, openFiles, errors, bytesCopied));
+                }
+            }
+            invokeAll(tasks);
+
+            try {
+                copyAttributes(source, destination);
+            } catch (IOException e) {
+                errors.add(destination.getPath() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static final class FileCopy extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final File source;
+        private final File destination;
+        private final Semaphore openFiles;
+        private final Queue<String> errors;
+        private final LongAdder bytesCopied;
+
+        FileCopy(File source, File destination, Semaphore openFiles, Queue<String> errors, LongAdder bytesCopied) {
+            this.source = source;
+            this.destination = destination;
+            this.openFiles = openFiles;
+            this.errors = errors;
+            this.bytesCopied = bytesCopied;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                openFiles.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                errors.add(source.getPath() + ": interrupted");
+                return;
+            }
+            try {
+                bytesCopied.add(copyFile(source, destination));
+            } catch (IOException e) {
+                errors.add(source.getPath() + ": " + e.getMessage());
+            } finally {
+                openFiles.release();
+            }
+        }
+    }
+
+    // Reads from the given position until end of file; returns the number of bytes written
+    private static long copyBuffered(FileChannel in, FileChannel out, long position) throws IOException {
+        ByteBuffer buffer = FALLBACK_BUFFER.get().clear();
+        long copied = 0;
+        int n;
+        while ((n = in.read(buffer, position + copied)) != -1) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            buffer.clear();
+            copied += n;
+        }
+        return copied;
+    }
+}
@@ -0,0 +1,164 @@
+package CLD;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.IntStream;
+
+/**
+ * Byte-level line/word/character counting for 'wc'.
+ * Files are memory-mapped and cut into chunks that are counted in parallel; a word split across
+ * two chunks is counted once when the results are merged. Nothing is decoded to String
+ * and nothing is allocated per line.
+ */
+final class CountEngine {
+    // Files below this size are counted on the calling thread
+    private static final long PARALLEL_THRESHOLD = 8L * 1024 * 1024;
+    static final long CHUNK_SIZE = 16L * 1024 * 1024;
+    private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+
+    private CountEngine() {
+    }
+
+    /**
+     * Counts of one chunk, file or stream. Characters are UTF-8 code points.
+     */
+    static final class Counts {
+        long lines;
+        long words;
+        long chars;
+        long bytes;
+        // whether the first/last byte is part of a word, used when merging neighbouring chunks
+        boolean startsInWord;
+        boolean endsInWord;
+
+        // Appends the counts of the chunk that directly follows this one
+        Counts append(Counts next) {
+            if (next.bytes == 0) return this;
+            if (bytes == 0) {
+                startsInWord = next.startsInWord;
+            }
+            words += next.words;
+            if (endsInWord && next.startsInWord) {
+                words--; // same word continues across the boundary
+            }
+            lines += next.lines;
+            chars += next.chars;
+            bytes += next.bytes;
+            endsInWord = next.endsInWord;
+            return this;
+        }
+
+        // Adds the counts of an unrelated file, for the 'total' line
+        void add(Counts other) {
+            lines += other.lines;
+            words += other.words;
+            chars += other.chars;
+            bytes += other.bytes;
+        }
+    }
+
+    // Entries of a mounted zip archive can't be mapped, so they are counted as they are inflated
+    static Counts count(Path path) throws IOException {
+        if (path.getFileSystem() != FileSystems.getDefault()) {
+            try (InputStream in = Files.newInputStream(path)) {
+                return count(in);
+            }
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < PARALLEL_THRESHOLD) {
+                return countRegion(channel, 0, size);
+            }
+
+            int chunks = (int) ((size + CHUNK_SIZE - 1) / CHUNK_SIZE);
+            Counts[] results = IntStream.range(0, chunks).parallel()
+                    .mapToObj(i -> {
+                        long start = i * CHUNK_SIZE;
+                        try {
+                            return countRegion(channel, start, Math.min(CHUNK_SIZE, size - start));
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    })
+                    .toArray(Counts[]::new);
+
+            Counts total = new Counts();
+            for (Counts chunk : results) {
+                total.append(chunk);
+            }
+            return total;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // Counts everything read from the stream, e.g. the output of a previous pipeline stage
+    static Counts count(InputStream in) throws IOException {
+        Counts total = new Counts();
+        byte[] buffer = new byte[SCAN_BUFFER_SIZE];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            total.append(scan(buffer, n));
+        }
+        return total;
+    }
+
+    private static Counts countRegion(FileChannel channel, long start, long length) throws IOException {
+        Counts counts = new Counts();
+        if (length == 0) return counts;
+
+        MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        byte[] buffer = new byte[(int) Math.min(SCAN_BUFFER_SIZE, length)];
+        while (region.hasRemaining()) {
+            int n = Math.min(buffer.length, region.remaining());
+            region.get(buffer, 0, n);
+            counts.append(scan(buffer, n));
+        }
+        return counts;
+    }
+
+    private static Counts scan(byte[] buffer, int length) {
+        Counts counts = new Counts();
+        if (length == 0) return counts;
+
+        long lines = 0;
+        long words = 0;
+        long chars = 0;
+        boolean inWord = false;
+
+        for (int i = 0; i < length; i++) {
+            byte b = buffer[i];
+            if (b == '\n') {
+                lines++;
+            }
+            // UTF-8 continuation bytes don't start a new character
+            if ((b & 0xC0) != 0x80) {
+                chars++;
+            }
+            boolean space = isSpace(b);
+            if (!space && !inWord) {
+                words++;
+            }
+            inWord = !space;
+        }
+
+        counts.lines = lines;
+        counts.words = words;
+        counts.chars = chars;
+        counts.bytes = length;
+        counts.startsInWord = !isSpace(buffer[0]);
+        counts.endsInWord = inWord;
+        return counts;
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || (b >= '\t' && b <= '\r');
+    }
+}
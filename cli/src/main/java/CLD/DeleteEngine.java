@@ -0,0 +1,204 @@
+package CLD;
+
+import java.io.IOException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Recursive delete used by 'rm -r'. The tree is removed post-order on a fork/join pool: the
+ * entries of a directory are deleted in parallel batches, subdirectories are emptied concurrently,
+ * and a directory is removed once everything under it is gone. Each entry is first deleted blindly,
+ * which costs a single unlink for a file; only entries that refuse are looked at more closely.
+ * Symbolic links are removed, never followed.
+ */
+final class DeleteEngine {
+    private static final int BATCH_SIZE = 256;
+
+    private DeleteEngine() {
+    }
+
+    /**
+     * Deletes root and everything below it. Failures don't stop the delete; every one is returned
+     * as a "path: reason" line, and the directories above a failure are left in place.
+     * With force, entries that are already gone are not an error.
+     * The number of files and directories removed is added to deleted.
+     */
+    static List<String> deleteTree(Path root, boolean force, LongAdder deleted) {
+        Queue<String> errors = new ConcurrentLinkedQueue<>();
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors() * 4);
+        try {
+            pool.invoke(new EntryDelete(List.of(root), force, errors, deleted));
+        } finally {
+            pool.shutdown();
+        }
+        return new ArrayList<>(errors);
+    }
+
+    /**
+     * Why rm must not remove target, typed as path, or null if it may. Like rm(1) it refuses a
+     * root directory and a path whose last component is '.' or '..'; it also refuses the current
+     * directory and the directories above it, which the session would be left standing in.
+     */
+    static String refusal(String path, Path target, Path currentDirectory) {
+        String trimmed = path.replaceAll("[/\\\\]+$", "");
+        String last = trimmed.substring(Math.max(trimmed.lastIndexOf('/'), trimmed.lastIndexOf('\\')) + 1);
+        if (last.equals(".") || last.equals("..")) {
+            return "refusing to remove '.' or '..' directory";
+        }
+        Path absolute = target.toAbsolutePath().normalize();
+        if (absolute.getParent() == null) {
+            return "refusing to remove the root directory";
+        }
+        if (currentDirectory.toAbsolutePath().normalize().startsWith(absolute)) {
+            return "refusing to remove the current directory or one above it";
+        }
+        return null;
+    }
+
+    // Readable reason for a failed file operation, without the path the exception repeats
+    static String reason(IOException e) {
+        if (e instanceof NoSuchFileException) return "No such file or directory";
+        if (e instanceof AccessDeniedException) return "Permission denied";
+        if (e instanceof DirectoryNotEmptyException) return "Directory not empty";
+        if (e instanceof FileSystemException && ((FileSystemException) e).getReason() != null) {
+            return ((FileSystemException) e).getReason();
+        }
+        return e.getMessage();
+    }
+
+    // Deletes a batch of entries of one directory, recursing into the subdirectories among them
+    private static final class EntryDelete extends RecursiveTask<Boolean> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Path> entries;
+        private final boolean force;
+        private final Queue<String> errors;
+        private final LongAdder deleted;
+
+        EntryDelete(List<Path> entries, boolean force, Queue<String> errors, LongAdder deleted) {
+            this.entries = entries;
+            this.force = force;
+            this.errors = errors;
+            this.deleted = deleted;
+        }
+
+        @Override
+        protected Boolean compute() {
+            boolean ok = true;
+            List<DirectoryDelete> directories = new ArrayList<>();
+
+            for (Path entry : entries) {
+                // files, links and empty directories go in one call
+                if (entry.toFile().delete()) {
+                    deleted.increment();
+                    continue;
+                }
+                try {
+                    BasicFileAttributes attrs = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    if (attrs.isDirectory()) {
+                        directories.add(new DirectoryDelete(entry, force, errors, deleted));
+                        continue;
+                    }
+                    // not a directory but not deleted either: find out why
+                    Files.delete(entry);
+                    deleted.increment();
+                } catch (NoSuchFileException e) {
+                    if (!force) {
+                        errors.add(entry + ": " + reason(e));
+                        ok = false;
+                    }
+                } catch (IOException e) {
+                    errors.add(entry + ": " + reason(e));
+                    ok = false;
+                }
+            }
+
+            for (DirectoryDelete directory : ForkJoinTask.invokeAll(directories)) {
+                ok &= directory.join();
+            }
+            return ok;
+        }
+    }
+
+    // Empties a directory with parallel batches of its entries, then removes it
+    private static final class DirectoryDelete extends RecursiveTask<Boolean> {
+        private static final long serialVersionUID = 1L;
+
+        private final Path dir;
+        private final boolean force;
+        private final Queue<String> errors;
+        private final LongAdder deleted;
+
+        DirectoryDelete(Path dir, boolean force, Queue<String> errors, LongAdder deleted) {
+            this.dir = dir;
+            this.force = force;
+            this.errors = errors;
+            this.deleted = deleted;
+        }
+
+        @Override
+        protected Boolean compute() {
+            boolean ok = true;
+            List<EntryDelete> batches = new ArrayList<>();
+
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+                List<Path> batch = new ArrayList<>(BATCH_SIZE);
+                for (Path entry : stream) {
+                    batch.add(entry);
+                    if (batch.size() == BATCH_SIZE) {
+                        batches.add(fork(batch));
+                        batch = new ArrayList<>(BATCH_SIZE);
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    batches.add(fork(batch));
+                }
+            } catch (IOException e) {
+                errors.add(dir + ": " + reason(e));
+                ok = false;
+            } catch (DirectoryIteratorException e) {
+                errors.add(dir + ": " + reason(e.getCause()));
+                ok = false;
+            }
+
+            for (EntryDelete batch : batches) {
+                ok &= batch.join();
+            }
+            if (!ok) return false; // keep the directory; the failure below it has been reported
+
+            try {
+                Files.delete(dir);
+                deleted.increment();
+                return true;
+            } catch (NoSuchFileException e) {
+                if (!force) errors.add(dir + ": " + reason(e));
+                return force;
+            } catch (IOException e) {
+                errors.add(dir + ": " + reason(e));
+                return false;
+            }
+        }
+
+        private EntryDelete fork(List<Path> batch) {
+            EntryDelete task = new EntryDelete(batch, force, errors, deleted);
+            task.fork();
+            return task;
+        }
+    }
+}
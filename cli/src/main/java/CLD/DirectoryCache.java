@@ -0,0 +1,377 @@
+package CLD;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-process cache of directory listings and stat results for 'ls', 'cd' and 'rmdir'.
+ * Both maps are LRU-bounded. Cached directories are registered with a WatchService and
+ * dropped as soon as an event arrives for them. Events can arrive seconds late where the
+ * WatchService polls, so a cached listing is also only reused while the directory's
+ * modification time is unchanged, and a stat result while its parent directory's is.
+ * Commands that change the filesystem also invalidate what they touched, so they never see
+ * their own changes late. Paths inside a mounted zip archive bypass the cache: they can't be
+ * watched, and the archive may be unmounted while its entries are still cached.
+ */
+final class DirectoryCache {
+    static final int MAX_DIRECTORIES = 256;
+    static final int MAX_STATS = 4096;
+    // Larger directories are always streamed from disk instead of being held in memory
+    static final int MAX_LISTING_SIZE = 10_000;
+
+    static final class Stat {
+        static final Stat MISSING = new Stat(false, false);
+
+        final boolean exists;
+        final boolean directory;
+
+        Stat(boolean exists, boolean directory) {
+            this.exists = exists;
+            this.directory = directory;
+        }
+    }
+
+    private static final class Listing {
+        final String[] names; // sorted; null if the directory has more than MAX_LISTING_SIZE entries
+        final long modified;
+
+        Listing(String[] names, long modified) {
+            this.names = names;
+            this.modified = modified;
+        }
+    }
+
+    private final Map<Path, Listing> listings = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, Listing> eldest) {
+            return size() > MAX_DIRECTORIES;
+        }
+    };
+    // A stat result and the modification time of the directory it was read in
+    private static final class CachedStat {
+        final Stat stat;
+        final long parentModified;
+
+        CachedStat(Stat stat, long parentModified) {
+            this.stat = stat;
+            this.parentModified = parentModified;
+        }
+    }
+
+    private final Map<Path, CachedStat> stats = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, CachedStat> eldest) {
+            return size() > MAX_STATS;
+        }
+    };
+    private final Map<Path, WatchKey> watches = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, WatchKey> eldest) {
+            if (size() <= MAX_DIRECTORIES) return false;
+            // without its watch, nothing cached under this directory can be trusted
+            eldest.getValue().cancel();
+            dropDirectory(eldest.getKey());
+            return true;
+        }
+    };
+
+    // Created with its thread on the first watch, so a run that never lists a directory doesn't pay for it;
+    // null when watching is unavailable
+    private WatchService watcher;
+    private boolean watcherStarted;
+    // Bumped on every invalidation, so a result read while one happened isn't cached
+    private long epoch = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long invalidations = 0;
+
+    private synchronized WatchService watcher() {
+        if (!watcherStarted) {
+            watcherStarted = true;
+            try {
+                watcher = FileSystems.getDefault().newWatchService();
+            } catch (IOException | UnsupportedOperationException e) {
+                watcher = null;
+            }
+
+            if (watcher != null) {
+                WatchService service = watcher;
+                Thread thread = new Thread(() -> processEvents(service), "directory-cache-watcher");
+                thread.setDaemon(true);
+                thread.start();
+            }
+        }
+        return watcher;
+    }
+
+    /**
+     * Sorted names in the directory, or null when it is too large to cache
+     * (the caller should stream it instead).
+     */
+    String[] list(Path dir) throws IOException {
+        if (!isLocal(dir)) {
+            return readSorted(dir);
+        }
+        dir = key(dir);
+        long modified = modifiedTime(dir);
+        long startEpoch;
+        synchronized (this) {
+            Listing cached = listings.get(dir);
+            if (cached != null && cached.modified == modified) {
+                hits++;
+                return cached.names;
+            }
+            misses++;
+            startEpoch = epoch;
+        }
+
+        // register before reading, so a change during the read is not missed
+        watch(dir);
+        String[] names = readSorted(dir);
+
+        synchronized (this) {
+            // without a modification time there is nothing to validate the listing against later
+            if (epoch == startEpoch && modified >= 0) {
+                listings.put(dir, new Listing(names, modified));
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Whether the directory has no entries. Answered from a cached listing when there is a valid one,
+     * otherwise by reading at most one entry; the probe itself is not cached.
+     */
+    boolean isEmpty(Path dir) throws IOException {
+        dir = key(dir);
+        long modified = modifiedTime(dir);
+        synchronized (this) {
+            Listing cached = listings.get(dir);
+            if (cached != null && cached.names != null && cached.modified == modified) {
+                hits++;
+                return cached.names.length == 0;
+            }
+            misses++;
+        }
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+            return !entries.iterator().hasNext();
+        } catch (DirectoryIteratorException e) {
+            throw e.getCause();
+        }
+    }
+
+    Stat stat(Path path) {
+        if (!isLocal(path)) {
+            return read(path);
+        }
+        path = key(path);
+        // creating, deleting or renaming the path changes its directory's modification time
+        Path parent = path.getParent();
+        long parentModified = parent != null ? modifiedTime(parent) : -1;
+        long startEpoch;
+        synchronized (this) {
+            CachedStat cached = stats.get(path);
+            if (cached != null && cached.parentModified == parentModified) {
+                hits++;
+                return cached.stat;
+            }
+            misses++;
+            startEpoch = epoch;
+        }
+
+        if (parent != null) {
+            watch(parent);
+        }
+        Stat stat = read(path);
+
+        synchronized (this) {
+            if (epoch == startEpoch && parentModified >= 0) {
+                stats.put(path, new CachedStat(stat, parentModified));
+            }
+        }
+        return stat;
+    }
+
+    // Forgets the path and its ancestors, after a command created, changed or removed it
+    synchronized void invalidate(Path path) {
+        path = key(path);
+        epoch++;
+        invalidations++;
+        // ancestors too: mkdirs may have created several levels at once
+        for (Path p = path; p != null; p = p.getParent()) {
+            stats.remove(p);
+            listings.remove(p);
+        }
+    }
+
+    // Forgets everything at or below root, e.g. after 'cp -r' or 'unzip' wrote a whole tree
+    synchronized void invalidateTree(Path root) {
+        Path prefix = key(root);
+        invalidate(prefix);
+        listings.keySet().removeIf(p -> p.startsWith(prefix));
+        stats.keySet().removeIf(p -> p.startsWith(prefix));
+    }
+
+    synchronized void clear() {
+        epoch++;
+        invalidations++;
+        listings.clear();
+        stats.clear();
+    }
+
+    /**
+     * Stops watching. The cache keeps working, validated by modification times alone. Worth doing before
+     * the JVM exits, which otherwise can take a few hundred milliseconds to get past the watcher's poll thread.
+     */
+    synchronized void close() {
+        watcherStarted = true;
+        if (watcher != null) {
+            try {
+                watcher.close();
+            } catch (IOException ignored) {
+            }
+        }
+        watches.clear();
+    }
+
+    synchronized String report() {
+        long total = hits + misses;
+        return "directory cache: " + listings.size() + " listings, " + stats.size() + " stats, "
+                + watches.size() + " watched directories" + (watcherStarted && watcher == null ? " (watching unavailable)" : "")
+                + "\nhits: " + hits + ", misses: " + misses
+                + (total > 0 ? String.format(" (%.1f%% hit rate)", 100.0 * hits / total) : "")
+                + ", invalidations: " + invalidations;
+    }
+
+    // Returns true if the directory is (now) watched for changes
+    private boolean watch(Path dir) {
+        WatchService watcher = watcher();
+        if (watcher == null) return false;
+        synchronized (this) {
+            if (watches.get(dir) != null) {
+                return true;
+            }
+        }
+        try {
+            WatchKey key = dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+            synchronized (this) {
+                watches.put(dir, key);
+            }
+            return true;
+        } catch (IOException | UnsupportedOperationException | ClosedWatchServiceException e) {
+            return false;
+        }
+    }
+
+    private void processEvents(WatchService watcher) {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watcher.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            Path dir = (Path) key.watchable();
+            List<WatchEvent<?>> events = key.pollEvents();
+
+            synchronized (this) {
+                epoch++;
+                invalidations++;
+                listings.remove(dir);
+                stats.remove(dir);
+                for (WatchEvent<?> event : events) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        dropDirectory(dir);
+                    } else {
+                        Path child = dir.resolve((Path) event.context());
+                        stats.remove(child);
+                        listings.remove(child);
+                    }
+                }
+                if (!key.reset()) {
+                    // directory deleted or no longer accessible
+                    watches.remove(dir);
+                    dropDirectory(dir);
+                }
+            }
+        }
+    }
+
+    // Removes the directory's listing and the stats of everything directly inside it
+    private void dropDirectory(Path dir) {
+        epoch++;
+        listings.remove(dir);
+        Iterator<Path> it = stats.keySet().iterator();
+        while (it.hasNext()) {
+            Path p = it.next();
+            if (dir.equals(p.getParent())) {
+                it.remove();
+            }
+        }
+    }
+
+    // Anything that can't be read counts as missing
+    private static Stat read(Path path) {
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+            return new Stat(true, attrs.isDirectory());
+        } catch (IOException e) {
+            return Stat.MISSING;
+        }
+    }
+
+    private static boolean isLocal(Path path) {
+        return path.getFileSystem() == FileSystems.getDefault();
+    }
+
+    // Cache keys are absolute and normalized, so "a/../b" and "b" share one entry
+    private static Path key(Path path) {
+        return path.toAbsolutePath().normalize();
+    }
+
+    private static long modifiedTime(Path dir) {
+        try {
+            return Files.getLastModifiedTime(dir).toMillis();
+        } catch (NoSuchFileException e) {
+            return -1;
+        } catch (IOException e) {
+            return -2;
+        }
+    }
+
+    private static String[] readSorted(Path dir) throws IOException {
+        FlightEvents.DirectoryScan event = FlightEvents.directoryScan();
+        List<String> names = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+            for (Path entry : entries) {
+                if (names.size() == MAX_LISTING_SIZE) {
+                    if (event != null) event.commit("dircache", dir, names.size());
+                    return null;
+                }
+                names.add(entry.getFileName().toString());
+            }
+        }
+        if (event != null) event.commit("dircache", dir, names.size());
+        String[] sorted = names.toArray(new String[0]);
+        Arrays.sort(sorted);
+        return sorted;
+    }
+}
@@ -0,0 +1,95 @@
+package CLD;
+
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The streams and working directory of a single command invocation.
+ * Every stage of a pipeline and every background job gets its own context, so commands never touch
+ * System.out or the session's directory directly and can safely run at the same time.
+ * Console output is buffered and only reaches the terminal when the buffer fills or the command
+ * ends and the context is flushed.
+ */
+class ExecutionContext {
+    private final InputStream in;
+    private final PrintStream out;
+    private final PrintStream err;
+    // Relative paths resolve against this; 'cd' changes it for this invocation only.
+    // Inside a mounted zip archive it is a path on the archive's filesystem
+    private Path directory;
+    // 0 until the command reports a failure
+    private volatile int status = 0;
+    // File bytes the command moved, for 'stats'
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+
+    public ExecutionContext(InputStream in, PrintStream out, PrintStream err, Path directory) {
+        this.in = in;
+        this.out = out;
+        this.err = err;
+        this.directory = directory;
+    }
+
+    // Context for another command in the same directory, e.g. the next stage of a pipeline
+    public ExecutionContext withStreams(InputStream in, PrintStream out, PrintStream err) {
+        return new ExecutionContext(in, out, err, directory);
+    }
+
+    // Piped input of this stage, or null when the command is not reading from a pipe
+    public InputStream in() {
+        return in;
+    }
+
+    public PrintStream out() {
+        return out;
+    }
+
+    public PrintStream err() {
+        return err;
+    }
+
+    public Path directory() {
+        return directory;
+    }
+
+    public void setDirectory(Path directory) {
+        this.directory = directory;
+    }
+
+    // A command argument as a path: relative ones against the working directory, wherever that is,
+    // absolute ones always on the local filesystem, so 'cp entry.txt /tmp' works inside an archive
+    public Path resolve(String path) {
+        Path given = Path.of(path);
+        return given.isAbsolute() ? given : directory.resolve(path);
+    }
+
+    // Pushes buffered output out once the command is done
+    public void flush() {
+        out.flush();
+        if (err != out) err.flush();
+    }
+
+    // Prints an error message where the command's output goes and marks the command as failed
+    public void error(String message) {
+        out.println(message);
+        status = 1;
+    }
+
+    public void fail() {
+        status = 1;
+    }
+
+    public int status() {
+        return status;
+    }
+
+    public LongAdder bytesRead() {
+        return bytesRead;
+    }
+
+    public LongAdder bytesWritten() {
+        return bytesWritten;
+    }
+}
@@ -0,0 +1,123 @@
+package CLD;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Tree walk for 'find' and 'grep -r'. Entries are visited in directory order without following
+ * symbolic links, and reported by the name they were reached under: the path as typed followed
+ * by the entries below it. The attributes the walk reads anyway answer -type and -size.
+ */
+final class FindEngine {
+    private Pattern name;        // -name, matched against the last path element
+    private Character type;      // -type f|d
+    private long size = -1;      // -size, in bytes
+    private int sizeComparison;  // -1 smaller than, 0 exactly, 1 larger than
+
+    FindEngine name(String glob) {
+        name = Glob.compile(glob);
+        return this;
+    }
+
+    FindEngine type(char type) {
+        this.type = type;
+        return this;
+    }
+
+    /**
+     * "+N" for larger than N, "-N" for smaller, "N" for exactly N; N is in bytes unless it ends
+     * in c (bytes), k, M or G.
+     */
+    FindEngine size(String spec) {
+        sizeComparison = spec.startsWith("+") ? 1 : spec.startsWith("-") ? -1 : 0;
+        String number = sizeComparison != 0 ? spec.substring(1) : spec;
+        long unit = 1;
+        char suffix = number.isEmpty() ? ' ' : number.charAt(number.length() - 1);
+        switch (suffix) {
+            case 'k':
+                unit = 1024;
+                break;
+            case 'M':
+                unit = 1024 * 1024;
+                break;
+            case 'G':
+                unit = 1024L * 1024 * 1024;
+                break;
+            case 'c':
+                break;
+            default:
+                suffix = ' ';
+        }
+        if (suffix != ' ') number = number.substring(0, number.length() - 1);
+        size = Long.parseLong(number) * unit; // NumberFormatException for a bad spec
+        return this;
+    }
+
+    /**
+     * Walks the tree under root, reported as shownAs, and hands every matching entry with its
+     * shown name to found. Unreadable directories are reported to errors and skipped.
+     */
+    void walk(Path root, String shownAs, BiConsumer<Path, String> found, Consumer<String> errors) throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                visit(dir, attrs);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                visit(file, attrs);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                errors.accept(shown(file) + ": " + DeleteEngine.reason(e));
+                return FileVisitResult.CONTINUE;
+            }
+
+            private void visit(Path path, BasicFileAttributes attrs) {
+                if (matches(path, attrs)) found.accept(path, shown(path));
+            }
+
+            private String shown(Path path) {
+                Path relative = root.relativize(path);
+                if (relative.toString().isEmpty()) return shownAs;
+                return shownAs.endsWith("/") ? shownAs + relative : shownAs + "/" + relative;
+            }
+        });
+    }
+
+    // The regular files under root, in walk order, for 'grep -r'
+    static List<GrepEngine.Target> files(Path root, String shownAs, Consumer<String> errors) throws IOException {
+        List<GrepEngine.Target> files = new ArrayList<>();
+        new FindEngine().type('f').walk(root, shownAs, (path, name) -> files.add(new GrepEngine.Target(path, name)), errors);
+        return files;
+    }
+
+    private boolean matches(Path path, BasicFileAttributes attrs) {
+        if (type != null) {
+            boolean directory = attrs.isDirectory();
+            if (type == 'd' ? !directory : !attrs.isRegularFile()) return false;
+        }
+        if (name != null) {
+            Path fileName = path.getFileName();
+            if (fileName == null || !name.matcher(fileName.toString()).matches()) return false;
+        }
+        if (size >= 0) {
+            int comparison = Long.compare(attrs.size(), size);
+            if (comparison != sizeComparison) return false;
+        }
+        return true;
+    }
+}
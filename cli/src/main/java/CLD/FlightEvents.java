@@ -0,0 +1,120 @@
+package CLD;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JDK Flight Recorder events for the builtins, so a recording shows whether a slow 'cp -r' or
+ * 'zip -r' spends its time on commands, on individual files or on reading directories.
+ * Loading the first event class brings up a good part of JFR, which takes a few hundred
+ * milliseconds, so the factories below hand out null until the flight recorder has been started,
+ * with the 'jfr' builtin or -XX:StartFlightRecording; callers skip a null event. The fields of an
+ * event are only filled in when it is actually going to be written.
+ */
+final class FlightEvents {
+    private FlightEvents() {
+    }
+
+    // Started events, or null while the flight recorder isn't running
+    static Command command() {
+        return FlightRecorder.isInitialized() ? begin(new Command()) : null;
+    }
+
+    static FileTransfer fileTransfer() {
+        return FlightRecorder.isInitialized() ? begin(new FileTransfer()) : null;
+    }
+
+    static DirectoryScan directoryScan() {
+        return FlightRecorder.isInitialized() ? begin(new DirectoryScan()) : null;
+    }
+
+    private static <T extends Event> T begin(T event) {
+        event.begin();
+        return event;
+    }
+
+    @Name("CLD.Command")
+    @Label("Command")
+    @Category({"CLI", "Commands"})
+    @Description("One builtin command, from dispatch to completion")
+    @StackTrace(false)
+    static final class Command extends Event {
+        @Label("Command")
+        String command;
+
+        @Label("Arguments")
+        String arguments;
+
+        @Label("Exit Status")
+        int status;
+
+        void commit(String command, String[] args, int status) {
+            if (shouldCommit()) {
+                this.command = command;
+                this.arguments = String.join(" ", args);
+                this.status = status;
+                commit();
+            }
+        }
+    }
+
+    @Name("CLD.FileTransfer")
+    @Label("File Transfer")
+    @Category({"CLI", "Files"})
+    @Description("One file copied, added to an archive or extracted from one")
+    @StackTrace(false)
+    static final class FileTransfer extends Event {
+        @Label("Operation")
+        @Description("copy, zip, zip-reuse or unzip")
+        String operation;
+
+        @Label("Path")
+        String path;
+
+        @Label("Bytes")
+        @Description("Uncompressed size")
+        @DataAmount
+        long bytes;
+
+        void commit(String operation, Object path, long bytes) {
+            if (shouldCommit()) {
+                this.operation = operation;
+                this.path = path.toString();
+                this.bytes = bytes;
+                commit();
+            }
+        }
+    }
+
+    @Name("CLD.DirectoryScan")
+    @Label("Directory Scan")
+    @Category({"CLI", "Files"})
+    @Description("One directory read, for a listing, a tree copy or an archive")
+    @StackTrace(false)
+    static final class DirectoryScan extends Event {
+        @Label("Operation")
+        @Description("ls, dircache, cp or zip")
+        String operation;
+
+        @Label("Path")
+        String path;
+
+        @Label("Entries")
+        int entries;
+
+        void commit(String operation, Object path, int entries) {
+            if (shouldCommit()) {
+                this.operation = operation;
+                this.path = path.toString();
+                this.entries = entries;
+                commit();
+            }
+        }
+    }
+}
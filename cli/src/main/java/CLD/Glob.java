@@ -0,0 +1,81 @@
+package CLD;
+
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Shell-style wildcard patterns: '*' matches any run of characters, '?' one character,
+ * and [...] a character class. Everything else matches literally, and so does a '[' that is
+ * never closed.
+ */
+final class Glob {
+    private Glob() {
+    }
+
+    static Pattern compile(String glob) {
+        StringBuilder regex = new StringBuilder(glob.length() + 8);
+
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            switch (c) {
+                case '*':
+                    regex.append(".*");
+                    break;
+                case '?':
+                    regex.append('.');
+                    break;
+                case '[':
+                    int end = classEnd(glob, i);
+                    if (end < 0) {
+                        // no closing ']': the '[' is an ordinary character
+                        regex.append("\\[");
+                        break;
+                    }
+                    appendClass(regex, glob, i + 1, end);
+                    i = end;
+                    break;
+                default:
+                    if ("\\.^$|+(){}[]".indexOf(c) >= 0) {
+                        regex.append('\\');
+                    }
+                    regex.append(c);
+            }
+        }
+        try {
+            return Pattern.compile(regex.toString(), Pattern.DOTALL);
+        } catch (PatternSyntaxException e) {
+            // e.g. a reversed range such as [z-a]: match the whole pattern literally instead
+            return Pattern.compile(Pattern.quote(glob));
+        }
+    }
+
+    // Index of the ']' closing the class opened at start, or -1. A ']' right after '[' or '[!' belongs to the class.
+    private static int classEnd(String glob, int start) {
+        int i = start + 1;
+        if (i < glob.length() && (glob.charAt(i) == '!' || glob.charAt(i) == '^')) i++;
+        if (i < glob.length() && glob.charAt(i) == ']') i++;
+        return glob.indexOf(']', i);
+    }
+
+    // The class glob[from, to) as a regex class; characters that mean something inside a Java class are escaped
+    private static void appendClass(StringBuilder regex, String glob, int from, int to) {
+        regex.append('[');
+        int i = from;
+        if (glob.charAt(i) == '!' || glob.charAt(i) == '^') {
+            regex.append('^');
+            i++;
+        }
+        for (; i < to; i++) {
+            char c = glob.charAt(i);
+            if ("\\[]^&".indexOf(c) >= 0) {
+                regex.append('\\');
+            }
+            regex.append(c);
+        }
+        regex.append(']');
+    }
+
+    static boolean isPattern(String s) {
+        return s.indexOf('*') >= 0 || s.indexOf('?') >= 0 || s.indexOf('[') >= 0;
+    }
+}
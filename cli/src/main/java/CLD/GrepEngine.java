@@ -0,0 +1,432 @@
+package CLD;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Line search for 'grep'. Files are memory-mapped in line-aligned regions and searched in place,
+ * either for a literal byte string with Boyer-Moore-Horspool or, when asked, with a regular
+ * expression applied one decoded line at a time. Files, and the regions of a large file, are
+ * searched on a pool a bounded number ahead of the one being printed, so results come out in the
+ * order the files were given as soon as they are ready, and no more than a few regions' worth of
+ * output is held at once. A file with a NUL byte near its start is treated as binary and skipped
+ * unless binary is set.
+ */
+final class GrepEngine {
+    // Files larger than this are cut into regions searched in parallel; lines are never split between them
+    static final long REGION_SIZE = 16L * 1024 * 1024;
+    // A region grows to the end of its last line, but a mapping can't pass this
+    private static final long MAX_REGION_SIZE = Integer.MAX_VALUE;
+    // How much of a file is checked for NUL bytes
+    private static final int BINARY_PROBE_SIZE = 8 * 1024;
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
+    enum Mode {
+        LINES,  // print matching lines
+        COUNT,  // print the number of matching lines
+        FILES   // print the names of files with a match
+    }
+
+    private final LineMatcher matcher;
+    private final Mode mode;
+    private final boolean withFileNames;
+    private final boolean binary;
+    private final int threads = Runtime.getRuntime().availableProcessors();
+
+    GrepEngine(String pattern, boolean regex, Mode mode, boolean withFileNames, boolean binary) {
+        this.matcher = regex ? new RegexMatcher(Pattern.compile(pattern)) : new LiteralMatcher(pattern.getBytes(StandardCharsets.UTF_8));
+        this.mode = mode;
+        this.withFileNames = withFileNames;
+        this.binary = binary;
+    }
+
+    // One file to search, with the name to print for it
+    static final class Target {
+        final Path path;
+        final String name;
+
+        Target(Path path, String name) {
+            this.path = path;
+            this.name = name;
+        }
+    }
+
+    // What a file, or one region of a large file, printed and matched
+    private static final class Result {
+        final String name;
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        long matches;
+        boolean skipped; // a binary file
+
+        Result(String name) {
+            this.name = name;
+        }
+    }
+
+    // The search of one file, shared by the regions it was cut into
+    private static final class FileSearch {
+        final Target target;
+        FileChannel channel; // open while the regions of a large file are searched
+        long matches;
+        boolean skipped;
+        IOException error;
+
+        FileSearch(Target target) {
+            this.target = target;
+        }
+    }
+
+    // A whole file or one region of a large one, searched or being searched; result is null if there is nothing to search
+    private static final class Part {
+        final FileSearch file;
+        final Future<Result> result;
+        final boolean last; // the file's last part, after which its -c or -l line is printed
+
+        Part(FileSearch file, Future<Result> result, boolean last) {
+            this.file = file;
+            this.result = result;
+            this.last = last;
+        }
+    }
+
+    /**
+     * Searches the files and writes the results to out in the given order, stopping early once out
+     * fails, e.g. when the next pipeline stage has stopped reading.
+     * Files that can't be read are reported as "name: reason" lines in errors.
+     * Returns whether any line matched.
+     */
+    boolean search(List<Target> targets, PrintStream out, List<String> errors) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "grep-search");
+            t.setDaemon(true);
+            return t;
+        });
+        // Bounds the output held by finished parts and the number of open files
+        int maxInFlight = threads * 2;
+        Deque<Part> inFlight = new ArrayDeque<>();
+        boolean matched = false;
+
+        try {
+            for (Target target : targets) {
+                FileSearch file = new FileSearch(target);
+                try {
+                    if (Files.size(target.path) <= REGION_SIZE) {
+                        inFlight.add(new Part(file, pool.submit(() -> searchFile(target)), true));
+                    } else {
+                        // a large file is opened here so its regions can be queued behind the files before it
+                        file.channel = FileChannel.open(target.path, StandardOpenOption.READ);
+                        long size = file.channel.size();
+                        List<long[]> regions = binary || !isBinary(file.channel, size) ? regions(file.channel, size) : List.of();
+                        file.skipped = regions.isEmpty();
+                        if (file.skipped) inFlight.add(new Part(file, null, true));
+                        for (int i = 0; i < regions.size(); i++) {
+                            long[] region = regions.get(i);
+                            inFlight.add(new Part(file, pool.submit(() -> searchRegion(file, region)), i == regions.size() - 1));
+                            while (inFlight.size() > maxInFlight) {
+                                matched |= write(inFlight.poll(), out, errors);
+                            }
+                            if (out.checkError()) return matched;
+                        }
+                    }
+                } catch (IOException e) {
+                    file.error = e;
+                    inFlight.add(new Part(file, null, true));
+                }
+                while (inFlight.size() > maxInFlight) {
+                    matched |= write(inFlight.poll(), out, errors);
+                }
+                if (out.checkError()) return matched;
+            }
+            while (!inFlight.isEmpty() && !out.checkError()) {
+                matched |= write(inFlight.poll(), out, errors);
+            }
+            return matched;
+        } finally {
+            pool.shutdownNow();
+            for (Part part : inFlight) {
+                close(part.file);
+            }
+        }
+    }
+
+    // Prints a finished part and, after a file's last one, its -c or -l line; returns whether the file matched
+    private boolean write(Part part, PrintStream out, List<String> errors) throws IOException {
+        FileSearch file = part.file;
+        if (part.result != null && file.error == null) {
+            try {
+                Result result = part.result.get();
+                file.skipped = result.skipped;
+                if (!(mode == Mode.FILES && file.matches > 0)) {
+                    file.matches += result.matches;
+                    result.output.writeTo(out);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while searching " + file.target.name);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                file.error = cause instanceof IOException ? (IOException) cause : new IOException(cause);
+            }
+        }
+        if (!part.last) return false;
+
+        close(file);
+        if (file.error != null) {
+            errors.add(file.target.name + ": " + DeleteEngine.reason(file.error));
+            return false;
+        }
+        if (!file.skipped) {
+            finish(file.target.name, file.matches, out);
+        }
+        return file.matches > 0;
+    }
+
+    private static void close(FileSearch file) {
+        if (file.channel != null) {
+            try {
+                file.channel.close();
+            } catch (IOException ignored) {
+            }
+            file.channel = null;
+        }
+    }
+
+    // Searches everything read from the stream, e.g. the output of a previous pipeline stage
+    boolean search(InputStream in, String name, PrintStream out) throws IOException {
+        Result result = new Result(name);
+        byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+        int filled = 0;
+        int n;
+
+        while (!out.checkError() && (n = in.read(buffer, filled, buffer.length - filled)) != -1) {
+            filled += n;
+            int end = filled;
+            while (end > 0 && buffer[end - 1] != '\n') end--;
+            if (end == 0) {
+                if (filled == buffer.length) buffer = Arrays.copyOf(buffer, buffer.length * 2); // a very long line
+                continue;
+            }
+            searchRegion(ByteBuffer.wrap(buffer), 0, end, result);
+            if (mode == Mode.FILES && result.matches > 0) break;
+            result.output.writeTo(out);
+            result.output.reset();
+
+            System.arraycopy(buffer, end, buffer, 0, filled - end);
+            filled -= end;
+        }
+        if (filled > 0 && !(mode == Mode.FILES && result.matches > 0)) {
+            searchRegion(ByteBuffer.wrap(buffer), 0, filled, result);
+        }
+        result.output.writeTo(out);
+        finish(name, result.matches, out);
+        return result.matches > 0;
+    }
+
+    // Searches a file that isn't cut into parallel regions, on a pool thread
+    private Result searchFile(Target target) throws IOException {
+        Result result = new Result(target.name);
+        try (FileChannel channel = FileChannel.open(target.path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (!binary && isBinary(channel, size)) {
+                result.skipped = true; // so nothing is printed for it at all
+                return result;
+            }
+            // the file may have grown since it was found to be small
+            for (long[] region : regions(channel, size)) {
+                searchRegion(channel, region, result);
+                if (mode == Mode.FILES && result.matches > 0) break;
+            }
+        }
+        return result;
+    }
+
+    private Result searchRegion(FileSearch file, long[] region) throws IOException {
+        Result result = new Result(file.target.name);
+        searchRegion(file.channel, region, result);
+        return result;
+    }
+
+    private void searchRegion(FileChannel channel, long[] region, Result result) throws IOException {
+        int length = (int) (region[1] - region[0]); // regions() keeps them within MAX_REGION_SIZE
+        searchRegion(channel.map(FileChannel.MapMode.READ_ONLY, region[0], length), 0, length, result);
+    }
+
+    // The per-file line of -c and -l
+    private void finish(String name, long matches, PrintStream out) {
+        if (mode == Mode.COUNT) {
+            out.print(withFileNames ? name + ":" + matches + "\n" : matches + "\n");
+        } else if (mode == Mode.FILES && matches > 0) {
+            out.print(name + "\n");
+        }
+    }
+
+    /**
+     * Cuts the file into [start, end) regions of about REGION_SIZE that each end after a newline.
+     * A region can't be mapped past MAX_REGION_SIZE, so a file with a longer line is refused.
+     */
+    private static List<long[]> regions(FileChannel channel, long size) throws IOException {
+        List<long[]> regions = new ArrayList<>();
+        ByteBuffer probe = ByteBuffer.allocate(STREAM_BUFFER_SIZE);
+        long start = 0;
+
+        while (start < size) {
+            long end = Math.min(start + REGION_SIZE, size);
+            // move the cut just past the next newline
+            while (end < size) {
+                probe.clear();
+                int n = channel.read(probe, end);
+                if (n <= 0) {
+                    end = size;
+                    break;
+                }
+                int newline = -1;
+                for (int i = 0; i < n; i++) {
+                    if (probe.get(i) == '\n') {
+                        newline = i;
+                        break;
+                    }
+                }
+                if (newline >= 0) {
+                    end += newline + 1;
+                    break;
+                }
+                end += n;
+                if (end - start > MAX_REGION_SIZE) break;
+            }
+            if (end - start > MAX_REGION_SIZE) {
+                throw new IOException("line too long to search (over " + MAX_REGION_SIZE + " bytes)");
+            }
+            regions.add(new long[]{start, end});
+            start = end;
+        }
+        return regions;
+    }
+
+    private static boolean isBinary(FileChannel channel, long size) throws IOException {
+        if (size == 0) return false;
+        ByteBuffer probe = ByteBuffer.allocate((int) Math.min(BINARY_PROBE_SIZE, size));
+        channel.read(probe, 0);
+        for (int i = 0; i < probe.position(); i++) {
+            if (probe.get(i) == 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Finds matching lines in buffer[from, to), where from is the start of a line,
+     * counting them and, in LINES mode, copying them to the result's output.
+     */
+    private void searchRegion(ByteBuffer buffer, int from, int to, Result result) {
+        byte[] prefix = withFileNames ? (result.name + ":").getBytes(StandardCharsets.UTF_8) : null;
+        byte[] line = null;
+        int position = from;
+
+        while (position < to) {
+            int hit = matcher.find(buffer, position, to);
+            if (hit < 0) break;
+
+            int lineStart = hit;
+            while (lineStart > position && buffer.get(lineStart - 1) != '\n') lineStart--;
+            int lineEnd = hit;
+            while (lineEnd < to && buffer.get(lineEnd) != '\n') lineEnd++;
+
+            result.matches++;
+            if (mode == Mode.FILES) return;
+            if (mode == Mode.LINES) {
+                int length = lineEnd - lineStart;
+                if (line == null || line.length < length) line = new byte[Math.max(length, 256)];
+                buffer.get(lineStart, line, 0, length);
+                if (prefix != null) result.output.write(prefix, 0, prefix.length);
+                result.output.write(line, 0, length);
+                result.output.write('\n');
+            }
+            position = lineEnd + 1;
+        }
+    }
+
+    // Finds the position of a match in buffer[from, to), which starts at a line start; -1 if none
+    private interface LineMatcher {
+        int find(ByteBuffer buffer, int from, int to);
+    }
+
+    // Boyer-Moore-Horspool over the raw bytes, so nothing is decoded
+    private static final class LiteralMatcher implements LineMatcher {
+        private final byte[] needle;
+        private final int[] shift = new int[256];
+
+        LiteralMatcher(byte[] needle) {
+            this.needle = needle;
+            Arrays.fill(shift, needle.length);
+            for (int i = 0; i < needle.length - 1; i++) {
+                shift[needle[i] & 0xff] = needle.length - 1 - i;
+            }
+        }
+
+        @Override
+        public int find(ByteBuffer buffer, int from, int to) {
+            int length = needle.length;
+            if (length == 0) return from < to ? from : -1;
+            int last = length - 1;
+            byte lastByte = needle[last];
+
+            for (int i = from; i <= to - length; ) {
+                byte b = buffer.get(i + last);
+                if (b == lastByte && matchesAt(buffer, i, last)) return i;
+                i += shift[b & 0xff];
+            }
+            return -1;
+        }
+
+        private boolean matchesAt(ByteBuffer buffer, int position, int last) {
+            for (int j = 0; j < last; j++) {
+                if (buffer.get(position + j) != needle[j]) return false;
+            }
+            return true;
+        }
+    }
+
+    // Regular expression, applied to one UTF-8 decoded line at a time
+    private static final class RegexMatcher implements LineMatcher {
+        private final Pattern pattern;
+
+        RegexMatcher(Pattern pattern) {
+            this.pattern = pattern;
+        }
+
+        @Override
+        public int find(ByteBuffer buffer, int from, int to) {
+            Matcher matcher = pattern.matcher("");
+            byte[] line = new byte[256];
+            int start = from;
+            while (start < to) {
+                int end = start;
+                while (end < to && buffer.get(end) != '\n') end++;
+                int length = end - start;
+                if (line.length < length) line = new byte[length];
+                buffer.get(start, line, 0, length);
+                if (matcher.reset(new String(line, 0, length, StandardCharsets.UTF_8)).find()) return start;
+                start = end + 1;
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package CLD;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * The first or last lines or bytes of a file for 'head' and 'tail', in memory that doesn't grow
+ * with the file. head reads forward only until it has printed enough. tail reads a file backwards
+ * from its end in blocks until it has seen enough newlines, then copies from there, so the work
+ * depends on how much is printed rather than on the file's size; from a pipe it keeps just the
+ * last blocks that can still be part of the output. A newline at the very end closes the last
+ * line rather than starting another one.
+ */
+final class HeadTailEngine {
+    private static final int BLOCK_SIZE = 64 * 1024;
+    // How often 'tail -f' looks for appended data and for a rotated file
+    static final long FOLLOW_INTERVAL_MILLIS = 250;
+
+    private HeadTailEngine() {
+    }
+
+    // Prints the first count lines or bytes of in; returns the number of bytes printed
+    static long head(InputStream in, long count, boolean lines, PrintStream out) throws IOException {
+        byte[] buffer = new byte[BLOCK_SIZE];
+        long remaining = count;
+        long written = 0;
+
+        while (remaining > 0 && !out.checkError()) {
+            int n = in.read(buffer, 0, lines ? buffer.length : (int) Math.min(buffer.length, remaining));
+            if (n == -1) break;
+
+            int end = n;
+            if (lines) {
+                for (int i = 0; i < n; i++) {
+                    if (buffer[i] == '\n' && --remaining == 0) {
+                        end = i + 1;
+                        break;
+                    }
+                }
+            } else {
+                remaining -= n;
+            }
+            out.write(buffer, 0, end);
+            written += end;
+        }
+        return written;
+    }
+
+    // Prints the last count lines or bytes of everything read from in; returns the number of bytes printed
+    static long tail(InputStream in, long count, boolean lines, PrintStream out) throws IOException {
+        if (count == 0) return 0;
+
+        ArrayDeque<Block> blocks = new ArrayDeque<>();
+        long size = 0;
+        long newlines = 0;
+        byte[] data;
+        while ((data = in.readNBytes(BLOCK_SIZE)).length > 0) {
+            Block block = new Block(data, lines ? countNewlines(data) : 0);
+            blocks.addLast(block);
+            size += data.length;
+            newlines += block.newlines;
+
+            // drop the oldest block once the newer ones hold all of the output;
+            // one newline more than asked for in case the last one ends the input
+            Block oldest;
+            while ((oldest = blocks.peekFirst()) != block
+                    && (lines ? newlines - oldest.newlines > count : size - oldest.data.length >= count)) {
+                blocks.removeFirst();
+                size -= oldest.data.length;
+                newlines -= oldest.newlines;
+            }
+        }
+        if (blocks.isEmpty()) return 0;
+
+        long start = Math.max(0, size - count);
+        if (lines) {
+            byte[] last = blocks.peekLast().data;
+            long wanted = last[last.length - 1] == '\n' ? count + 1 : count;
+            long[] found = {0};
+            long offset = size;
+            start = 0;
+            for (Iterator<Block> it = blocks.descendingIterator(); it.hasNext(); ) {
+                Block block = it.next();
+                offset -= block.data.length;
+                int index = scanBack(block.data, block.data.length, wanted, found);
+                if (index >= 0) {
+                    start = offset + index;
+                    break;
+                }
+            }
+        }
+
+        long written = 0;
+        long offset = 0;
+        for (Block block : blocks) {
+            int from = (int) Math.max(0, Math.min(block.data.length, start - offset));
+            out.write(block.data, from, block.data.length - from);
+            written += block.data.length - from;
+            offset += block.data.length;
+        }
+        return written;
+    }
+
+    /**
+     * Offset at which the last count lines of the first size bytes of the file begin,
+     * reading backwards from there one block at a time.
+     */
+    static long lastLinesStart(FileChannel channel, long size, long count) throws IOException {
+        if (count == 0 || size == 0) return size;
+
+        byte[] block = new byte[BLOCK_SIZE];
+        ByteBuffer buffer = ByteBuffer.wrap(block);
+        long[] found = {0};
+        long end = size;
+        while (end > 0) {
+            long start = Math.max(0, end - BLOCK_SIZE);
+            int length = (int) (end - start);
+            buffer.clear().limit(length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, start + buffer.position()) == -1) {
+                    throw new IOException("file was truncated while reading");
+                }
+            }
+            if (end == size && block[length - 1] == '\n') {
+                count++;
+            }
+
+            int index = scanBack(block, length, count, found);
+            if (index >= 0) {
+                return start + index;
+            }
+            end = start;
+        }
+        return 0;
+    }
+
+    // Prints the bytes of the file between start and end; returns the number printed
+    static long copy(FileChannel channel, long start, long end, PrintStream out) throws IOException {
+        byte[] block = new byte[BLOCK_SIZE];
+        ByteBuffer buffer = ByteBuffer.wrap(block);
+        long position = start;
+        int n;
+        // checkError() turns true once the next stage has stopped reading
+        while (position < end && !out.checkError()
+                && (n = channel.read(buffer.clear().limit((int) Math.min(BLOCK_SIZE, end - position)), position)) != -1) {
+            out.write(block, 0, n);
+            position += n;
+        }
+        return position - start;
+    }
+
+    /**
+     * 'tail -f': prints whatever is appended to the file from position on, until the thread is
+     * interrupted or out fails. The file is polled: when it gets shorter it was truncated and is
+     * printed again from the start; when the path names another file it was rotated, so the rest
+     * of the old file is printed and the new one followed from its start. Closes the channel and
+     * returns the number of bytes printed.
+     */
+    static long follow(Path path, String name, FileChannel channel, long position, PrintStream out, PrintStream err)
+            throws IOException {
+        Object key = fileKey(path);
+        long written = 0;
+        try {
+            while (!Thread.currentThread().isInterrupted() && !out.checkError()) {
+                long size = channel.size();
+                if (size < position) {
+                    notice(err, "tail: " + name + ": file truncated");
+                    position = 0;
+                }
+                if (size > position) {
+                    long n = copy(channel, position, size, out);
+                    out.flush();
+                    position += n;
+                    written += n;
+                    continue;
+                }
+
+                // everything of the old file has been printed by now
+                Object current = fileKey(path);
+                if (current != null && !current.equals(key)) {
+                    FileChannel next = open(path);
+                    if (next != null) {
+                        channel.close();
+                        channel = next;
+                        key = current;
+                        position = 0;
+                        notice(err, "tail: " + name + " has been replaced; following the new file");
+                        continue;
+                    }
+                }
+                Thread.sleep(FOLLOW_INTERVAL_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            channel.close();
+        }
+        return written;
+    }
+
+    // Identity of the file the path names now, or null while there is none
+    private static Object fileKey(Path path) {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    // The file at path, or null when it went away again before it could be opened
+    private static FileChannel open(Path path) throws IOException {
+        try {
+            return FileChannel.open(path, StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private static void notice(PrintStream err, String message) {
+        err.println(message);
+        err.flush();
+    }
+
+    /**
+     * Counts newlines from the end of block[0, length) backwards, adding to found[0]; returns the
+     * index just past the newline that makes count, or -1 if the block doesn't hold it.
+     */
+    private static int scanBack(byte[] block, int length, long count, long[] found) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (block[i] == '\n' && ++found[0] == count) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    private static int countNewlines(byte[] data) {
+        int newlines = 0;
+        for (byte b : data) {
+            if (b == '\n') newlines++;
+        }
+        return newlines;
+    }
+
+    private static final class Block {
+        final byte[] data;
+        final int newlines;
+
+        Block(byte[] data, int newlines) {
+            this.data = data;
+            this.newlines = newlines;
+        }
+    }
+}
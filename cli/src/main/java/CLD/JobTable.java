@@ -0,0 +1,226 @@
+package CLD;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.function.ToIntFunction;
+
+/**
+ * Background jobs started with a trailing '&'. Each job runs on its own (virtual, where available)
+ * thread, but at most maxRunning of them execute at once; the rest wait in start order.
+ * A job writes into its own in-memory buffer instead of the terminal, and the buffered output is
+ * handed over when the job is reaped by 'fg', 'wait' or the done notice after a command.
+ */
+final class JobTable {
+    static final int DEFAULT_MAX_RUNNING = Math.max(2, Runtime.getRuntime().availableProcessors());
+    // Output kept per job; anything beyond it is dropped and the job's output marked truncated
+    static final int MAX_BUFFERED_OUTPUT = 16 * 1024 * 1024;
+
+    enum State {
+        WAITING, RUNNING, DONE
+    }
+
+    static final class Job {
+        final int id;
+        final String command;
+        final boolean endless; // only ends when killed, like a 'tail -f'
+        private final Output output = new Output();
+        private final CountDownLatch finished = new CountDownLatch(1);
+        private volatile State state = State.WAITING;
+        private volatile int status;
+        private volatile boolean killed;
+        // Runs the job while it is running, null before and after
+        private volatile Thread thread;
+
+        Job(int id, String command, boolean endless) {
+            this.id = id;
+            this.command = command;
+            this.endless = endless;
+        }
+
+        State state() {
+            return state;
+        }
+
+        int status() {
+            return status;
+        }
+
+        // Interrupts the job if it is running, or keeps it from starting
+        void kill() {
+            killed = true;
+            Thread running = thread;
+            if (running != null) {
+                running.interrupt();
+            }
+        }
+
+        int await() throws InterruptedException {
+            finished.await();
+            return status;
+        }
+
+        // Copies the job's output to out as it is produced, until the job finishes
+        void follow(PrintStream out) throws InterruptedException {
+            output.copyTo(out);
+        }
+
+        // One line for 'jobs' and the done notice, e.g. "[2]  Running    zip -r out.zip data"
+        String describe() {
+            String label;
+            switch (state) {
+                case WAITING:
+                    label = "Waiting";
+                    break;
+                case RUNNING:
+                    label = "Running";
+                    break;
+                default:
+                    label = killed ? "Killed" : status == 0 ? "Done" : "Exit " + status;
+            }
+            return String.format("[%d]  %-10s %s", id, label, command);
+        }
+    }
+
+    private final TreeMap<Integer, Job> jobs = new TreeMap<>();
+    private final Semaphore running;
+    private final ExecutorService executor = Threads.newPerTaskExecutor("job");
+
+    JobTable(int maxRunning) {
+        if (maxRunning < 1) throw new IllegalArgumentException("maxRunning must be at least 1");
+        running = new Semaphore(maxRunning, true);
+    }
+
+    /**
+     * Starts body in the background. It gets the job's output stream and returns its exit status.
+     * An endless job is one that will not finish unless it is killed.
+     */
+    Job start(String command, boolean endless, ToIntFunction<PrintStream> body) {
+        Job job;
+        synchronized (this) {
+            int id = jobs.isEmpty() ? 1 : jobs.lastKey() + 1;
+            job = new Job(id, command, endless);
+            jobs.put(id, job);
+        }
+
+        PrintStream out = new PrintStream(job.output, true);
+        executor.execute(() -> {
+            int status = 1;
+            job.thread = Thread.currentThread();
+            try {
+                if (job.killed) {
+                    throw new InterruptedException();
+                }
+                running.acquire();
+                try {
+                    job.state = State.RUNNING;
+                    status = body.applyAsInt(out);
+                } finally {
+                    running.release();
+                }
+            } catch (InterruptedException e) {
+                out.println("Error: job interrupted");
+            } catch (RuntimeException e) {
+                out.println("Error: " + e.getMessage());
+            } finally {
+                job.thread = null;
+                Thread.interrupted();
+                out.flush();
+                job.status = status;
+                job.state = State.DONE;
+                job.output.close();
+                job.finished.countDown();
+            }
+        });
+        return job;
+    }
+
+    synchronized Job get(int id) {
+        return jobs.get(id);
+    }
+
+    // The most recently started job still in the table, or null
+    synchronized Job latest() {
+        return jobs.isEmpty() ? null : jobs.lastEntry().getValue();
+    }
+
+    synchronized List<Job> all() {
+        return new ArrayList<>(jobs.values());
+    }
+
+    synchronized List<Job> done() {
+        List<Job> done = new ArrayList<>();
+        for (Job job : jobs.values()) {
+            if (job.state == State.DONE) done.add(job);
+        }
+        return done;
+    }
+
+    synchronized void remove(Job job) {
+        jobs.remove(job.id);
+    }
+
+    /**
+     * Growable byte buffer a job writes into, readable while it is still being written.
+     */
+    private static final class Output extends OutputStream {
+        private byte[] buffer = new byte[256];
+        private int count = 0;
+        private boolean closed = false;
+        private boolean truncated = false;
+
+        @Override
+        public synchronized void write(int b) {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            int room = MAX_BUFFERED_OUTPUT - count;
+            if (len > room) {
+                len = room;
+                truncated = true;
+            }
+            if (count + len > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.min(MAX_BUFFERED_OUTPUT, Math.max(count + len, buffer.length * 2)));
+            }
+            System.arraycopy(b, off, buffer, count, len);
+            count += len;
+            notifyAll();
+        }
+
+        @Override
+        public synchronized void close() {
+            closed = true;
+            notifyAll();
+        }
+
+        void copyTo(PrintStream out) throws InterruptedException {
+            int position = 0;
+            while (true) {
+                byte[] chunk;
+                boolean end;
+                synchronized (this) {
+                    while (position == count && !closed) {
+                        wait();
+                    }
+                    chunk = Arrays.copyOfRange(buffer, position, count);
+                    position = count;
+                    end = closed && position == count;
+                }
+                out.write(chunk, 0, chunk.length);
+                out.flush();
+                if (end) break;
+            }
+            synchronized (this) {
+                if (truncated) out.println("[output truncated at " + MAX_BUFFERED_OUTPUT + " bytes]");
+            }
+        }
+    }
+}
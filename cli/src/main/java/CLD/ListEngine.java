@@ -0,0 +1,172 @@
+package CLD;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Directory listing for 'ls', built on Files.newDirectoryStream.
+ * The unsorted mode prints every name as soon as it is read. The sorted mode sorts names in
+ * batches and, once a directory has more than one batch, spills sorted runs to temporary files
+ * and merges them, so memory stays bounded by the batch size however large the directory is.
+ */
+final class ListEngine {
+    static final int SORT_BATCH_SIZE = 100_000;
+    private static final int RUN_BUFFER_SIZE = 64 * 1024;
+    private static final DateTimeFormatter TIME_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm").withZone(ZoneId.systemDefault());
+
+    private ListEngine() {
+    }
+
+    // Prints entries in the order the filesystem returns them
+    static void listUnsorted(Path dir, boolean longFormat, PrintStream out) throws IOException {
+        FlightEvents.DirectoryScan event = FlightEvents.directoryScan();
+        int count = 0;
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+            for (Path entry : entries) {
+                String name = entry.getFileName().toString();
+                out.println(longFormat ? longLine(entry, name) : name);
+                count++;
+            }
+        }
+        if (event != null) event.commit("ls", dir, count);
+    }
+
+    // Prints entries sorted by name
+    static void listSorted(Path dir, boolean longFormat, PrintStream out) throws IOException {
+        List<String> batch = new ArrayList<>();
+        List<Run> runs = new ArrayList<>();
+        FlightEvents.DirectoryScan event = FlightEvents.directoryScan();
+        int count = 0;
+
+        try {
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+                for (Path entry : entries) {
+                    batch.add(entry.getFileName().toString());
+                    count++;
+                    if (batch.size() == SORT_BATCH_SIZE) {
+                        runs.add(spill(batch));
+                        batch.clear();
+                    }
+                }
+            }
+            if (event != null) event.commit("ls", dir, count);
+            Collections.sort(batch);
+
+            if (runs.isEmpty()) {
+                for (String name : batch) {
+                    print(dir, name, longFormat, out);
+                }
+                return;
+            }
+
+            runs.add(spill(batch));
+            batch = null;
+            merge(dir, runs, longFormat, out);
+        } finally {
+            for (Run run : runs) {
+                run.close();
+            }
+        }
+    }
+
+    /**
+     * One 'ls -l' line: type, size, modification time and name,
+     * all from a single readAttributes call.
+     */
+    static String longLine(Path entry, String name) {
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            char type = attrs.isDirectory() ? 'd' : attrs.isSymbolicLink() ? 'l' : attrs.isRegularFile() ? '-' : '?';
+            return type + " " + String.format("%12d", attrs.size()) + " "
+                    + TIME_FORMAT.format(Instant.ofEpochMilli(attrs.lastModifiedTime().toMillis())) + " " + name;
+        } catch (IOException e) {
+            // removed while we were listing, or unreadable
+            return "? " + String.format("%12s", "?") + " " + "????-??-?? ??:??" + " " + name;
+        }
+    }
+
+    private static void print(Path dir, String name, boolean longFormat, PrintStream out) {
+        out.println(longFormat ? longLine(dir.resolve(name), name) : name);
+    }
+
+    private static void merge(Path dir, List<Run> runs, boolean longFormat, PrintStream out) throws IOException {
+        PriorityQueue<Run> heads = new PriorityQueue<>((a, b) -> a.head.compareTo(b.head));
+        for (Run run : runs) {
+            if (run.advance()) {
+                heads.add(run);
+            }
+        }
+        while (!heads.isEmpty()) {
+            Run run = heads.poll();
+            print(dir, run.head, longFormat, out);
+            if (run.advance()) {
+                heads.add(run);
+            }
+        }
+    }
+
+    // Sorts the batch and writes it to a temporary file
+    private static Run spill(List<String> batch) throws IOException {
+        Collections.sort(batch);
+        Path file = Files.createTempFile("ls-run", ".tmp");
+        try (DataOutputStream data = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(file), RUN_BUFFER_SIZE))) {
+            for (String name : batch) {
+                data.writeUTF(name);
+            }
+        }
+        return new Run(file, batch.size());
+    }
+
+    // A sorted run on disk, read back one name at a time during the merge
+    private static final class Run {
+        final Path file;
+        int remaining;
+        DataInputStream in;
+        String head;
+
+        Run(Path file, int count) {
+            this.file = file;
+            this.remaining = count;
+        }
+
+        boolean advance() throws IOException {
+            if (remaining == 0) {
+                return false;
+            }
+            if (in == null) {
+                in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), RUN_BUFFER_SIZE));
+            }
+            head = in.readUTF();
+            remaining--;
+            return true;
+        }
+
+        void close() {
+            try {
+                if (in != null) {
+                    in.close();
+                }
+                Files.deleteIfExists(file);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package CLD;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded in-memory byte pipe joining two pipeline stages.
+ * The writer blocks while the buffer is full and the reader blocks while it is empty,
+ * so a fast producer can never get more than one buffer ahead of its consumer.
+ */
+class Pipe {
+    private final byte[] buffer;
+    private int readPos = 0;
+    private int count = 0;
+    private boolean writerClosed = false;
+    private boolean readerClosed = false;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+
+    private final InputStream source = new Source();
+    private final OutputStream sink = new Sink();
+
+    public Pipe(int capacity) {
+        buffer = new byte[capacity];
+    }
+
+    // Read end, handed to the downstream stage
+    public InputStream source() {
+        return source;
+    }
+
+    // Write end, handed to the upstream stage; closing it signals end of input downstream
+    public OutputStream sink() {
+        return sink;
+    }
+
+    private class Sink extends OutputStream {
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                lock.lock();
+                try {
+                    while (count == buffer.length && !readerClosed) {
+                        notFull.await();
+                    }
+                    if (readerClosed) {
+                        throw new IOException("Broken pipe");
+                    }
+                    if (writerClosed) {
+                        throw new IOException("Pipe closed");
+                    }
+
+                    int writePos = (readPos + count) % buffer.length;
+                    int n = Math.min(len, Math.min(buffer.length - count, buffer.length - writePos));
+                    System.arraycopy(b, off, buffer, writePos, n);
+                    count += n;
+                    off += n;
+                    len -= n;
+                    notEmpty.signal();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while writing to pipe");
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            lock.lock();
+            try {
+                writerClosed = true;
+                notEmpty.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private class Source extends InputStream {
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) == -1 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            lock.lock();
+            try {
+                while (count == 0 && !writerClosed && !readerClosed) {
+                    notEmpty.await();
+                }
+                if (count == 0) {
+                    return -1;
+                }
+
+                int n = Math.min(len, Math.min(count, buffer.length - readPos));
+                System.arraycopy(buffer, readPos, b, off, n);
+                readPos = (readPos + n) % buffer.length;
+                count -= n;
+                notFull.signal();
+                return n;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while reading from pipe");
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public int available() {
+            lock.lock();
+            try {
+                return count;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Closing the read end makes further writes fail, so an upstream stage stops early
+        @Override
+        public void close() {
+            lock.lock();
+            try {
+                readerClosed = true;
+                count = 0;
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
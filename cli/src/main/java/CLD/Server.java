@@ -0,0 +1,339 @@
+package CLD;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves shell sessions over a local TCP port or a Unix-domain socket, so one warm JVM can run
+ * many short scripts without paying startup for each. Every connection gets its own Terminal,
+ * and with it its own working directory, parser, jobs and stats; the directory cache is shared.
+ * The client sends command lines and receives their output; the session ends at 'exit', when the
+ * client closes its side, or after idleTimeout without input.
+ * There is no authentication: a Unix-domain socket is created readable and writable by its owner
+ * only, while a TCP port on the loopback interface lets every local user run commands as the
+ * server's user, so main only listens on one when given --allow-tcp.
+ *
+ * Usage: Server <port | socket path> [--allow-tcp] [-m max sessions] [-t idle seconds] [-j jobs per session]
+ */
+public class Server implements Closeable {
+    static final int DEFAULT_MAX_SESSIONS = 256;
+    static final long DEFAULT_IDLE_TIMEOUT_SECONDS = 300;
+    private static final int SESSION_BUFFER_SIZE = 64 * 1024;
+
+    private final SocketAddress address;
+    private final ServerSocketChannel listener;
+    private final DirectoryCache directoryCache = new DirectoryCache();
+    private final Semaphore slots;
+    private final int maxSessions;
+    private final long idleTimeoutNanos;
+    private final int maxJobs;
+    private final Set<Session> sessions = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger sessionIds = new AtomicInteger();
+    private final ScheduledExecutorService idleChecker = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "session-idle-check");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public Server(SocketAddress address, int maxSessions, long idleTimeoutSeconds, int maxJobs) throws IOException {
+        this.address = address;
+        this.maxSessions = maxSessions;
+        this.slots = new Semaphore(maxSessions);
+        this.idleTimeoutNanos = TimeUnit.SECONDS.toNanos(idleTimeoutSeconds);
+        this.maxJobs = maxJobs;
+
+        if (address instanceof UnixDomainSocketAddress) {
+            Path path = ((UnixDomainSocketAddress) address).getPath();
+            if (Files.exists(path)) {
+                throw new IOException("Socket file already exists: " + path + " (remove it if no server is running)");
+            }
+            listener = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+            bindToOwner(path);
+        } else {
+            listener = ServerSocketChannel.open();
+            listener.bind(address);
+        }
+
+        long period = Math.max(1, Math.min(idleTimeoutSeconds, 10));
+        idleChecker.scheduleAtFixedRate(this::closeIdleSessions, period, period, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Only the server's user may connect; the socket file's permissions are the only access control.
+     * bind creates the socket with the process umask, so it is bound inside a new directory only the
+     * owner can enter, restricted, and only then renamed into place.
+     */
+    private void bindToOwner(Path socket) throws IOException {
+        Path staging;
+        try {
+            staging = Files.createTempDirectory(socket.toAbsolutePath().getParent(), ".sock",
+                    PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+        } catch (UnsupportedOperationException e) {
+            // no POSIX permissions here (Windows); the socket keeps the directory's access rules
+            listener.bind(UnixDomainSocketAddress.of(socket));
+            return;
+        }
+
+        Path staged = staging.resolve("s");
+        try {
+            listener.bind(UnixDomainSocketAddress.of(staged));
+            Files.setPosixFilePermissions(staged, PosixFilePermissions.fromString("rw-------"));
+            Files.move(staged, socket, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            listener.close();
+            Files.deleteIfExists(staged);
+            throw e;
+        } finally {
+            Files.deleteIfExists(staging);
+        }
+    }
+
+    // A number is a TCP port on the loopback interface, anything else a Unix-domain socket path
+    static SocketAddress parseAddress(String address) {
+        if (!address.isEmpty() && address.chars().allMatch(Character::isDigit)) {
+            return new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(address));
+        }
+        return UnixDomainSocketAddress.of(address);
+    }
+
+    // Accepts connections until the server is closed
+    public void serve() throws IOException {
+        while (listener.isOpen()) {
+            SocketChannel channel;
+            try {
+                channel = listener.accept();
+            } catch (ClosedChannelException e) {
+                return;
+            }
+
+            if (!slots.tryAcquire()) {
+                reject(channel);
+                continue;
+            }
+            Session session = new Session(sessionIds.incrementAndGet(), channel);
+            sessions.add(session);
+            Threads.start("session-" + session.id, session);
+        }
+    }
+
+    private void reject(SocketChannel channel) {
+        try (channel) {
+            String message = "Error: Server busy (" + maxSessions + " sessions), try again later.\n";
+            channel.write(ByteBuffer.wrap(message.getBytes(StandardCharsets.UTF_8)));
+        } catch (IOException ignored) {
+        }
+    }
+
+    private void closeIdleSessions() {
+        long now = System.nanoTime();
+        for (Session session : sessions) {
+            long since = session.waitingSince;
+            if (since != 0 && now - since > idleTimeoutNanos) {
+                session.close("Session closed after " + TimeUnit.NANOSECONDS.toSeconds(idleTimeoutNanos) + " s idle.");
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        idleChecker.shutdownNow();
+        listener.close();
+        for (Session session : sessions) {
+            session.close("Server shutting down.");
+        }
+        directoryCache.close();
+        if (address instanceof UnixDomainSocketAddress) {
+            Files.deleteIfExists(((UnixDomainSocketAddress) address).getPath());
+        }
+    }
+
+    private final class Session implements Runnable {
+        final int id;
+        final SocketChannel channel;
+        final PrintStream out;
+        // When the session started waiting for its next line, 0 while a command runs
+        volatile long waitingSince = 0;
+
+        Session(int id, SocketChannel channel) {
+            this.id = id;
+            this.channel = channel;
+            this.out = new PrintStream(new BufferedOutputStream(new ChannelOutput(channel), SESSION_BUFFER_SIZE), false);
+        }
+
+        @Override
+        public void run() {
+            Terminal terminal = new Terminal(directoryCache, maxJobs, out, out);
+            try (BufferedReader input = new BufferedReader(
+                    new InputStreamReader(new ChannelInput(channel), StandardCharsets.UTF_8), SESSION_BUFFER_SIZE)) {
+                while (terminal.isRunning()) {
+                    waitingSince = System.nanoTime();
+                    String line = input.readLine();
+                    waitingSince = 0;
+                    if (line == null) break;
+                    terminal.runLine(line);
+                }
+                terminal.finishJobs();
+                out.flush();
+            } catch (IOException e) {
+                // the client went away or the session was closed for being idle
+            } finally {
+                waitingSince = 0;
+                terminal.unmountArchives();
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                }
+                sessions.remove(this);
+                slots.release();
+            }
+        }
+
+        // Says why, then closes the connection, which also ends a pending read
+        void close(String reason) {
+            synchronized (out) {
+                out.println(reason);
+                out.flush();
+            }
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /*
+     * Streams over a blocking SocketChannel. Unlike Channels.newInputStream/newOutputStream they
+     * don't take the channel's blocking lock, so writing to a session (e.g. the idle notice) isn't
+     * held up by the session's pending read.
+     */
+    private static final class ChannelInput extends InputStream {
+        private final SocketChannel channel;
+
+        ChannelInput(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) == -1 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            return channel.read(ByteBuffer.wrap(b, off, len));
+        }
+    }
+
+    private static final class ChannelOutput extends OutputStream {
+        private final SocketChannel channel;
+
+        ChannelOutput(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        String usage = "Usage: Server <port | socket path> [--allow-tcp] [-m max sessions] [-t idle seconds] [-j jobs per session]";
+        if (args.length == 0) {
+            System.err.println(usage);
+            System.exit(2);
+        }
+
+        int maxSessions = DEFAULT_MAX_SESSIONS;
+        long idleSeconds = DEFAULT_IDLE_TIMEOUT_SECONDS;
+        int maxJobs = JobTable.DEFAULT_MAX_RUNNING;
+        boolean allowTcp = false;
+        try {
+            for (int i = 1; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--allow-tcp":
+                        allowTcp = true;
+                        break;
+                    case "-m":
+                        maxSessions = Integer.parseInt(args[++i]);
+                        break;
+                    case "-t":
+                        idleSeconds = Long.parseLong(args[++i]);
+                        break;
+                    case "-j":
+                        maxJobs = Integer.parseInt(args[++i]);
+                        break;
+                    default:
+                        throw new NumberFormatException();
+                }
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            maxSessions = 0;
+        }
+        if (maxSessions < 1 || idleSeconds < 1 || maxJobs < 1) {
+            System.err.println(usage);
+            System.exit(2);
+        }
+
+        SocketAddress address = parseAddress(args[0]);
+        if (address instanceof InetSocketAddress && !allowTcp) {
+            System.err.println("Error: A TCP port accepts commands from every local user, without authentication. "
+                    + "Use a Unix-domain socket path, or pass --allow-tcp to listen on port " + args[0] + " anyway.");
+            System.exit(2);
+        }
+        Server server;
+        try {
+            server = new Server(address, maxSessions, idleSeconds, maxJobs);
+        } catch (IOException e) {
+            System.err.println("Error: Cannot listen on " + address + ": " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.close();
+            } catch (IOException ignored) {
+            }
+        }));
+        System.err.println("Listening on " + address + " (max " + maxSessions + " sessions, "
+                + idleSeconds + " s idle timeout)");
+        server.serve();
+    }
+}
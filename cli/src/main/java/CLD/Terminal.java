@@ -0,0 +1,1881 @@
+package CLD;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.ProviderNotFoundException;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.text.ParseException;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.PatternSyntaxException;
+import java.util.zip.Deflater;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+/**
+ * Single-pass tokenizer turning an input line into a {@link CommandLine}.
+ * Words may be quoted with "..." or '...', and quoted text is taken literally, so '|', ';', '&',
+ * '&&' and '>' only act as operators outside quotes. Parsed lines are kept in a small LRU cache so
+ * scripts that repeat the same command don't tokenize it again.
+ */
+class Parser {
+    static final int CACHE_SIZE = 256;
+
+    private final Map<String, CommandLine> cache = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CommandLine> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    // Scratch state of the line being tokenized, reused from one parse to the next
+    private final StringBuilder token = new StringBuilder();
+    private final List<String> words = new ArrayList<>();
+    private final List<String[]> stages = new ArrayList<>();
+    private final List<CommandLine.Pipeline> pipelines = new ArrayList<>();
+    private final List<CommandLine.Connector> connectors = new ArrayList<>();
+    private String redirectFile;
+    private boolean append;
+
+    private CommandLine commandLine;
+    private String error;
+
+    public boolean parse(String input) {
+        error = null;
+        input = input.trim();
+        if (input.isEmpty()) return false;
+
+        CommandLine parsed = cache.get(input);
+        if (parsed == null) {
+            parsed = tokenize(input);
+            if (parsed == null) return false;
+            cache.put(input, parsed);
+        }
+        commandLine = parsed;
+        return true;
+    }
+
+    private CommandLine tokenize(String input) {
+        token.setLength(0);
+        words.clear();
+        stages.clear();
+        pipelines.clear();
+        connectors.clear();
+        redirectFile = null;
+        append = false;
+
+        CommandLine.Connector connector = CommandLine.Connector.SEQUENCE;
+        boolean inWord = false;     // a word has started, possibly as an empty "" or ''
+        boolean expectFile = false; // the next word is the target of '>' or '>>'
+        int length = input.length();
+
+        for (int i = 0; i < length; i++) {
+            char c = input.charAt(i);
+
+            if (c == '"' || c == '\'') {
+                // quoted text is copied as is, up to the matching quote
+                int close = input.indexOf(c, i + 1);
+                if (close == -1) {
+                    error = "Error: Unmatched quotes in command.";
+                    return null;
+                }
+                token.append(input, i + 1, close);
+                inWord = true;
+                i = close;
+                continue;
+            }
+            char next = i + 1 < length ? input.charAt(i + 1) : 0;
+            boolean operator = c == '|' || c == ';' || c == '>' || c == '&';
+
+            if (!operator && !Character.isWhitespace(c)) {
+                int end = i + 1;
+                while (end < length && isPlain(input.charAt(end))) end++;
+                token.append(input, i, end);
+                inWord = true;
+                i = end - 1;
+                continue;
+            }
+
+            // whitespace or an operator ends the current word
+            if (inWord) {
+                if (expectFile) {
+                    redirectFile = token.toString();
+                    expectFile = false;
+                } else {
+                    words.add(token.toString());
+                }
+                token.setLength(0);
+                inWord = false;
+            }
+            if (!operator) continue;
+
+            if (expectFile) {
+                error = "Error: Missing redirection file name.";
+                return null;
+            }
+            if (c == '>') {
+                append = next == '>';
+                if (append) i++;
+                expectFile = true;
+            } else if (c == '|' && next != '|') {
+                if (!endStage()) return null;
+            } else if (c == '&' && next != '&') {
+                if (!endPipeline(connector, true)) return null;
+                connector = CommandLine.Connector.SEQUENCE;
+            } else {
+                if (c != ';') i++; // the second character of '&&' or '||'
+                if (!endPipeline(connector, false)) return null;
+                connector = c == ';' ? CommandLine.Connector.SEQUENCE
+                        : c == '&' ? CommandLine.Connector.AND : CommandLine.Connector.OR;
+            }
+        }
+
+        if (inWord) {
+            if (expectFile) {
+                redirectFile = token.toString();
+                expectFile = false;
+            } else {
+                words.add(token.toString());
+            }
+        }
+        if (expectFile) {
+            error = "Error: Missing redirection file name.";
+            return null;
+        }
+
+        // a trailing ';' or '&' is allowed, a trailing '&&' or '||' is not
+        boolean nothingPending = words.isEmpty() && stages.isEmpty() && redirectFile == null;
+        if (!(nothingPending && !pipelines.isEmpty() && connector == CommandLine.Connector.SEQUENCE)) {
+            if (!endPipeline(connector, false)) return null;
+        }
+        return new CommandLine(pipelines, connectors);
+    }
+
+    // Characters that continue an unquoted word
+    private static boolean isPlain(char c) {
+        return c != '"' && c != '\'' && c != '|' && c != ';' && c != '>' && c != '&' && !Character.isWhitespace(c);
+    }
+
+    // Closes the stage collected so far at a '|'
+    private boolean endStage() {
+        if (words.isEmpty() || redirectFile != null) {
+            error = "Error: Invalid pipeline syntax.";
+            return false;
+        }
+        stages.add(words.toArray(new String[0]));
+        words.clear();
+        return true;
+    }
+
+    // Closes the pipeline collected so far at ';', '&', '&&', '||' or the end of the line
+    private boolean endPipeline(CommandLine.Connector connector, boolean background) {
+        if (words.isEmpty()) {
+            error = stages.isEmpty() ? "Error: Invalid command syntax." : "Error: Invalid pipeline syntax.";
+            return false;
+        }
+        stages.add(words.toArray(new String[0]));
+        words.clear();
+        pipelines.add(new CommandLine.Pipeline(new ArrayList<>(stages), redirectFile, append, background));
+        connectors.add(connector);
+        stages.clear();
+        redirectFile = null;
+        append = false;
+        return true;
+    }
+
+    public CommandLine getCommandLine() {
+        return commandLine;
+    }
+
+    // Why the last parse failed, or null if it succeeded or the line was blank
+    public String getError() {
+        return error;
+    }
+
+    // Name and arguments of the first command on the line
+    public String getCommandName() {
+        return commandLine.pipeline(0).stages.get(0)[0];
+    }
+
+    public String[] getArgs() {
+        String[] stage = commandLine.pipeline(0).stages.get(0);
+        return Arrays.copyOfRange(stage, 1, stage.length);
+    }
+
+    /**
+     * Returns the stages of the first '|' pipeline on the line, each as the command name followed
+     * by its arguments. A plain command is a pipeline with a single stage.
+     */
+    public List<String[]> getStages() {
+        return commandLine.pipeline(0).stages;
+    }
+
+    public String getredirectfile() {
+        return commandLine.pipeline(0).redirectFile;
+    }
+
+    public boolean isappendredirect() {
+        return commandLine.pipeline(0).append;
+    }
+}
+
+public class Terminal {
+    private static final int REDIRECT_BUFFER_SIZE = 64 * 1024;
+    private static final int PIPE_BUFFER_SIZE = 64 * 1024;
+    private static final int CAT_BUFFER_SIZE = 256 * 1024;
+    private static final int BATCH_BUFFER_SIZE = 64 * 1024;
+    private static final int CONSOLE_BUFFER_SIZE = 64 * 1024;
+
+    private Parser parser;
+    // The session's working directory; commands see a copy of it in their ExecutionContext
+    private Path currentDirectory;
+    // Buffered terminal output shared by foreground commands, flushed after every command line
+    private final PrintStream stdout;
+    private final PrintStream stderr;
+    private final DirectoryCache directoryCache;
+    private final CommandRegistry commands;
+    private final JobTable jobs;
+    private volatile boolean running = true;
+    // Flight recording started with 'jfr start', null when none is running
+    private Recording recording;
+    // Archives entered with 'cd', open until the session ends; guarded by itself
+    private final List<Mount> mounts = new ArrayList<>();
+
+    // A zip archive mounted as a read-only filesystem, as it was when it was mounted
+    private static final class Mount {
+        final Path archive;
+        final FileTime modified;
+        final FileSystem fileSystem;
+
+        Mount(Path archive, FileTime modified, FileSystem fileSystem) {
+            this.archive = archive;
+            this.modified = modified;
+            this.fileSystem = fileSystem;
+        }
+    }
+
+    public Terminal() {
+        this(JobTable.DEFAULT_MAX_RUNNING);
+    }
+
+    // maxJobs caps how many background jobs run at once
+    public Terminal(int maxJobs) {
+        this(new DirectoryCache(), maxJobs,
+                new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), CONSOLE_BUFFER_SIZE), false),
+                new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.err), CONSOLE_BUFFER_SIZE), false));
+    }
+
+    // A session talking over the given streams, e.g. a server connection sharing the server's cache
+    Terminal(DirectoryCache directoryCache, int maxJobs, PrintStream stdout, PrintStream stderr) {
+        parser = new Parser();
+        this.directoryCache = directoryCache;
+        commands = new CommandRegistry();
+        jobs = new JobTable(maxJobs);
+        registerCommands();
+        currentDirectory = Path.of(System.getProperty("user.dir"));
+        this.stdout = stdout;
+        this.stderr = stderr;
+    }
+
+    // False once 'exit' has run
+    boolean isRunning() {
+        return running;
+    }
+
+    public String pwd() {
+        return displayPath(currentDirectory);
+    }
+
+    // Inside a mounted archive: the archive's path followed by the directory within it
+    private String displayPath(Path dir) {
+        Path archive = archiveOf(dir);
+        if (archive == null) {
+            return dir.toAbsolutePath().toString();
+        }
+        return dir.getParent() == null ? archive.toString() : archive + dir.toString();
+    }
+
+    /**
+     * 'cd archive.zip' mounts the archive with the JDK's zip filesystem and enters its root, so ls, cat,
+     * wc and cp read single entries in place instead of extracting the whole archive first.
+     * 'cd ..' from the archive's root goes back to the directory holding it.
+     */
+    public void cd(ExecutionContext io, String[] args) {
+        if (args.length == 0) {
+            io.setDirectory(Path.of(System.getProperty("user.home")));
+        }
+
+        else if (args.length == 1 && args[0].equals("..")) {
+            Path parent = io.directory().getParent();
+            Path archive;
+            if (parent != null) {
+                io.setDirectory(parent);
+            } else if ((archive = archiveOf(io.directory())) != null) {
+                io.setDirectory(archive.getParent());
+            } else {
+                io.error("Error: Already at root directory.");
+            }
+        }
+
+        else if (args.length == 1) {
+            String path = args[0];
+            Path newDir = io.resolve(path);
+            DirectoryCache.Stat stat = directoryCache.stat(newDir);
+
+            if (stat.directory) {
+                try{
+                    io.setDirectory(newDir.toRealPath());
+                }
+                catch (IOException e) {
+                    io.error("Error resolving path: " + e.getMessage());
+                }
+            }
+            else if (stat.exists) {
+                try {
+                    io.setDirectory(mount(newDir.toRealPath()));
+                } catch (IOException | ProviderNotFoundException e) {
+                    io.error("Error: Not a directory or zip archive: " + path);
+                }
+            }
+            else{
+                io.error("Error: No such directory: " + path);
+            }
+
+        }
+        else{
+            io.error("Error: cd takes 0 or 1 argument.");
+        }
+    }
+
+    public void ls(ExecutionContext io) {
+        // This is the original behavior: list current directory
+        ls(io, new String[0]);
+    }
+
+    // Overloaded method to handle 'ls', 'ls [-l] [-U] [path]'
+    public void ls(ExecutionContext io, String[] args) {
+        boolean longFormat = false;
+        boolean unsorted = false;
+        List<String> paths = new ArrayList<>();
+
+        for (String arg : args) {
+            if (arg.length() > 1 && arg.startsWith("-")) {
+                for (char flag : arg.substring(1).toCharArray()) {
+                    if (flag == 'l') {
+                        longFormat = true;
+                    } else if (flag == 'U') {
+                        // print in directory order, as entries are read
+                        unsorted = true;
+                    } else {
+                        io.error("Error: ls: invalid option -" + flag);
+                        return;
+                    }
+                }
+            } else {
+                paths.add(arg);
+            }
+        }
+
+        Path targetDirectory;
+
+        // If no path, use the current directory
+        if (paths.isEmpty()) {
+            targetDirectory = io.directory();
+
+            // If 1 path, use that as the directory path
+        } else if (paths.size() == 1) {
+            targetDirectory = io.resolve(paths.get(0));
+
+        } else {
+            io.error("Error: ls takes 0 or 1 argument.");
+            return;
+        }
+
+        // Check if the target directory is valid
+        if (!directoryCache.stat(targetDirectory).directory) {
+            io.error("Error: No such directory: " + targetDirectory);
+            return;
+        }
+
+        try {
+            Path dir = targetDirectory;
+            String[] cached;
+            if (unsorted) {
+                ListEngine.listUnsorted(dir, longFormat, io.out());
+            } else if ((cached = directoryCache.list(dir)) != null) {
+                // Sorted alphabetically (as required by the assignment), served from the cache
+                for (String name : cached) {
+                    io.out().println(longFormat ? ListEngine.longLine(dir.resolve(name), name) : name);
+                }
+            } else {
+                // Too large to cache: sort through ListEngine's bounded external sort
+                ListEngine.listSorted(dir, longFormat, io.out());
+            }
+        } catch (IOException e) {
+            io.error("Error: Cannot list contents of " + displayPath(targetDirectory));
+        }
+    }
+
+    // Root of the archive's zip filesystem. An archive is mounted once per session, and again
+    // only if it has been modified since, so entries are never read from a stale central directory.
+    private Path mount(Path archive) throws IOException {
+        FileTime modified = Files.getLastModifiedTime(archive);
+        synchronized (mounts) {
+            for (Mount mount : mounts) {
+                if (mount.archive.equals(archive) && mount.modified.equals(modified)) {
+                    return mount.fileSystem.getPath("/");
+                }
+            }
+            FileSystem fileSystem = FileSystems.newFileSystem(archive);
+            mounts.add(new Mount(archive, modified, fileSystem));
+            return fileSystem.getPath("/");
+        }
+    }
+
+    // The archive a path is in, or null for a path on the local filesystem
+    private Path archiveOf(Path path) {
+        FileSystem fileSystem = path.getFileSystem();
+        if (fileSystem == FileSystems.getDefault()) {
+            return null;
+        }
+        synchronized (mounts) {
+            for (Mount mount : mounts) {
+                if (mount.fileSystem == fileSystem) {
+                    return mount.archive;
+                }
+            }
+        }
+        return null;
+    }
+
+    // Closes the archives this session mounted, once it has ended
+    void unmountArchives() {
+        synchronized (mounts) {
+            for (Mount mount : mounts) {
+                try {
+                    mount.fileSystem.close();
+                } catch (IOException ignored) {
+                }
+            }
+            mounts.clear();
+        }
+    }
+
+    // For commands that only work on local files: the path as a File, or null (after an error)
+    // for a path inside a mounted archive, which is only ever read
+    private static File localFile(ExecutionContext io, String command, Path path) {
+        if (path.getFileSystem() != FileSystems.getDefault()) {
+            io.error("Error: " + command + ": not supported inside a zip archive: " + path);
+            return null;
+        }
+        return path.toFile();
+    }
+
+    // nariman
+    public void mkdir(ExecutionContext io, String[] args) {
+        if (args.length == 0) {
+            io.error("mkdir: missing operand");
+            return;
+        }
+        String fullCommand = String.join(" ", args).trim();
+        boolean isQuotedPath = fullCommand.startsWith("\"") && fullCommand.endsWith("\"");
+
+        if (isQuotedPath) {
+            String path = fullCommand.substring(1, fullCommand.length() - 1);
+            File newDir = new File(path);
+
+            if (newDir.exists()) {
+                io.out().println("The directory already exists: " + newDir.getName());
+            } else {
+                boolean created = newDir.mkdirs();
+                directoryCache.invalidate(newDir.toPath());
+                if (!created) {
+                    if (!newDir.getParentFile().exists()) {
+                        io.error("Error: parent path does not exist -> " + newDir.getParent());
+                    } else {
+                        io.error("Error creating directory: " + newDir.getPath());
+                    }
+                }
+            }
+            return;
+        }
+
+        for (String folderName : args) {
+            folderName = folderName.trim();
+            if (folderName.isEmpty()) continue;
+
+            File newDir = localFile(io, "mkdir", io.resolve(folderName));
+            if (newDir == null) return;
+
+            if (!newDir.exists()) {
+                boolean created = newDir.mkdirs();
+                directoryCache.invalidate(newDir.toPath());
+                if (!created) {
+                    io.error("Error creating directory: " + newDir.getPath());
+                }
+            }
+        }
+    }
+
+
+    // 'rmdir [-p] dir' removes an empty directory; with -p also its parents as they become empty
+    public void rmdir(ExecutionContext io, String[] args) {
+        boolean parents = args.length > 0 && args[0].equals("-p");
+        if (parents) {
+            args = Arrays.copyOfRange(args, 1, args.length);
+        }
+        if (args.length == 0) {
+            io.error("rmdir: missing operand");
+            return;
+        }
+
+        if (args.length == 1 && args[0].equals("*")) {
+            File dir = localFile(io, "rmdir", io.directory());
+            if (dir == null) return;
+            String[] names;
+            try {
+                names = directoryCache.list(dir.toPath());
+            } catch (IOException e) {
+                names = null;
+            }
+            if (names == null) {
+                names = dir.list();
+            }
+            boolean found = false;
+
+            if (names != null) {
+                for (String name : names) {
+                    File f = new File(dir, name);
+                    if (directoryCache.stat(f.toPath()).directory && isEmptyDirectory(f)) {
+                        if (f.delete()) {
+                            directoryCache.invalidate(f.toPath());
+                            found = true;
+                        }
+                    }
+                }
+            }
+
+            if (!found) {
+                io.out().println("No empty directories found.");
+            }
+            return;
+        }
+
+        String path = String.join(" ", args).trim();
+        if (path.startsWith("\"") && path.endsWith("\"")) {
+            path = path.substring(1, path.length() - 1);
+        }
+
+        File targetDir = localFile(io, "rmdir", io.resolve(path));
+        if (targetDir == null) return;
+
+        DirectoryCache.Stat stat = directoryCache.stat(targetDir.toPath());
+        if (!stat.exists) {
+            io.error("Error: directory does not exist -> " + targetDir.getPath());
+        } else if (!stat.directory) {
+            io.error("Error: not a directory -> " + targetDir.getPath());
+        } else if (!isEmptyDirectory(targetDir)) {
+            io.error("Error: directory not empty -> " + targetDir.getPath());
+        } else {
+            boolean deleted = targetDir.delete();
+            directoryCache.invalidate(targetDir.toPath());
+            if (!deleted) {
+
+                io.error("Error removing directory -> " + targetDir.getPath());
+            } else if (parents) {
+                removeParents(io, path);
+            }
+        }
+    }
+
+    // For 'rmdir -p a/b/c': removes a/b, then a, stopping at the first one that is not empty
+    private void removeParents(ExecutionContext io, String path) {
+        for (File parent = new File(path).getParentFile(); parent != null; parent = parent.getParentFile()) {
+            File dir = io.resolve(parent.getPath()).toFile();
+            if (!isEmptyDirectory(dir)) {
+                io.error("Error: directory not empty -> " + dir.getPath());
+                return;
+            }
+            boolean deleted = dir.delete();
+            directoryCache.invalidate(dir.toPath());
+            if (!deleted) {
+                io.error("Error removing directory -> " + dir.getPath());
+                return;
+            }
+        }
+    }
+
+    private boolean isEmptyDirectory(File dir) {
+        try {
+            return directoryCache.isEmpty(dir.toPath());
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public void cp(ExecutionContext io, String[] args) {
+        // to be implemented by nariman
+        if (args.length != 2) {
+            io.error("cp: requires 2 arguments (source and destination)");
+            return;
+        }
+        // the source may be an entry of a mounted archive; archives are only read, so the target is local
+        Path sourceFile = io.resolve(args[0]);
+        File target = localFile(io, "cp", io.resolve(args[1]));
+        if (target == null) return;
+        if (!Files.exists(sourceFile)){
+            io.error("error source doesn't exist ");
+            return;
+        }
+        Path destinationFile = target.isDirectory() ? target.toPath().resolve(sourceFile.getFileName().toString())
+                : target.toPath();
+        try {
+            long copied = CopyEngine.copyFile(sourceFile, destinationFile);
+            io.bytesRead().add(copied);
+            io.bytesWritten().add(copied);
+            directoryCache.invalidate(destinationFile);
+        }catch (IOException e ){
+            io.error("error copy "+e.getMessage());
+        }
+    }
+
+    public void cp_r(ExecutionContext io, String[] args) {
+        // to be implemented by nariman
+        int maxOpenFiles = CopyEngine.DEFAULT_MAX_OPEN_FILES;
+        if (args.length == 4 && args[0].equals("-j")) {
+            // cp -r -j <n> src dst: at most n files copied at the same time
+            try {
+                maxOpenFiles = Integer.parseInt(args[1]);
+            } catch (NumberFormatException e) {
+                maxOpenFiles = 0;
+            }
+            if (maxOpenFiles < 1) {
+                io.error("cp: invalid number of parallel copies: " + args[1]);
+                return;
+            }
+            args = Arrays.copyOfRange(args, 2, args.length);
+        }
+        if (args.length != 2 ){
+            io.error("cp require two arg ");
+            return ;
+        }
+        File sourceDir = localFile(io, "cp", io.resolve(args[0]));
+        File destDir = sourceDir == null ? null : localFile(io, "cp", io.resolve(args[1]));
+        if (destDir == null) return;
+        if (!sourceDir.exists() || !sourceDir.isDirectory ()){
+            io.error("source dir dosn;t exist ");
+            return ;
+        }
+        if (!destDir.exists()){
+            destDir.mkdirs();
+        }
+
+        // every byte copied was read once and written once, as in 'cp'
+        LongAdder copied = new LongAdder();
+        List<String> errors = CopyEngine.copyTree(sourceDir, new File(destDir, sourceDir.getName()), maxOpenFiles,
+                copied);
+        io.bytesRead().add(copied.sum());
+        io.bytesWritten().add(copied.sum());
+        directoryCache.invalidateTree(destDir.toPath());
+        if (!errors.isEmpty()) {
+            io.err().println("cp: " + errors.size() + " error(s) while copying " + args[0] + ":");
+            for (String error : errors) {
+                io.err().println("  " + error);
+            }
+            io.fail();
+        }
+    }
+
+    /**
+     * Helper method for 'zip -r'. Recursively adds files/dirs to the archive being built.
+     * Children are added in name order so the same tree always produces the same archive.
+     */
+    private void addDirectoryToZip(ExecutionContext io, File fileToZip, String parentPath, ZipEngine zip) {
+        String entryName = parentPath + fileToZip.getName();
+
+        if (fileToZip.isDirectory()) {
+            // Add the directory entry itself
+            zip.addDirectory(entryName + "/", fileToZip, "Adding directory: " + entryName);
+
+            // Recursively add all contents
+            FlightEvents.DirectoryScan event = FlightEvents.directoryScan();
+            File[] children = fileToZip.listFiles();
+            if (children != null) {
+                if (event != null) event.commit("zip", fileToZip, children.length);
+                Arrays.sort(children, Comparator.comparing(File::getName));
+                for (File child : children) {
+                    addDirectoryToZip(io, child, entryName + "/", zip);
+                }
+            }
+        } else {
+            // Add a file
+            zip.addFile(entryName, fileToZip, "Added file: " + entryName);
+        }
+    }
+
+    // abdelrahman
+    public void touch(ExecutionContext io, String[] args) {
+        if (args.length == 0 || args.length > 1) {
+            io.error("Error: touch requires one argument.");
+            return;
+        }
+
+        File file = localFile(io, "touch", io.resolve(args[0]));
+        if (file == null) return;
+
+        try {
+            io.out().println(file.createNewFile() ? "new file created !" : "file already exists");
+            directoryCache.invalidate(file.toPath());
+        } catch (IOException e) {
+            io.err().println("file cannot be created !" + e.getMessage());
+            io.fail();
+        }
+    }
+
+    /**
+     * 'rm [-r] [-f] path...': -r removes directories with everything in them, -f ignores missing paths.
+     * Without -r only files and empty directories are removed. A root directory, a path ending in
+     * '.' or '..' and the current directory or one above it are refused.
+     */
+    public void rm(ExecutionContext io, String[] args) {
+        boolean recursive = false;
+        boolean force = false;
+        List<String> paths = new ArrayList<>();
+
+        for (String arg : args) {
+            if (arg.length() > 1 && arg.startsWith("-")) {
+                for (char flag : arg.substring(1).toCharArray()) {
+                    if (flag == 'r' || flag == 'R') {
+                        recursive = true;
+                    } else if (flag == 'f') {
+                        force = true;
+                    } else {
+                        io.error("Error: rm: invalid option -" + flag);
+                        return;
+                    }
+                }
+            } else {
+                paths.add(arg);
+            }
+        }
+        if (paths.isEmpty()) {
+            if (!force) io.error("Error: rm requires at least one argument.");
+            return;
+        }
+
+        boolean failed = false;
+        LongAdder removed = new LongAdder();
+        for (String path : paths) {
+            File file = localFile(io, "rm", io.resolve(path));
+            if (file == null) return;
+            Path target = file.toPath();
+
+            List<String> errors;
+            String refusal = DeleteEngine.refusal(path, target, io.directory());
+            if (refusal != null) {
+                errors = List.of(path + ": " + refusal);
+            } else if (recursive) {
+                errors = DeleteEngine.deleteTree(target, force, removed);
+                directoryCache.invalidateTree(target);
+            } else {
+                errors = new ArrayList<>();
+                try {
+                    Files.delete(target);
+                    removed.increment();
+                } catch (DirectoryNotEmptyException e) {
+                    errors.add(path + ": Directory not empty (use rm -r)");
+                } catch (NoSuchFileException e) {
+                    if (!force) errors.add(path + ": " + DeleteEngine.reason(e));
+                } catch (IOException e) {
+                    errors.add(path + ": " + DeleteEngine.reason(e));
+                }
+                directoryCache.invalidate(target);
+            }
+
+            for (String error : errors) {
+                io.err().println("Error: rm: " + error);
+            }
+            failed |= !errors.isEmpty();
+        }
+
+        if (failed) {
+            io.fail();
+        } else if (!force) {
+            io.out().println(recursive ? "deleted successfully (" + removed.sum() + " entries)" : "deleted successfully");
+        }
+    }
+
+    public void cat(ExecutionContext io, String[] args) {
+        if (args.length == 0 && io.in() != null) {
+            // Inside a pipeline: copy the previous stage's output through unchanged
+            try {
+                byte[] buffer = new byte[CAT_BUFFER_SIZE];
+                int n;
+                while ((n = io.in().read(buffer)) != -1 && !io.out().checkError()) {
+                    io.out().write(buffer, 0, n);
+                }
+                io.out().flush();
+            } catch (IOException e) {
+                io.err().println("Error: cat: " + e.getMessage());
+                io.fail();
+            }
+            return;
+        }
+        if (args.length == 0) {
+            io.error("Error: cat requires at least one file argument.");
+            return;
+        }
+
+        byte[] buffer = new byte[CAT_BUFFER_SIZE];
+        for (String path : args) {
+            // Copies the raw bytes, so binary files and line endings come out exactly as stored.
+            // If one file can't be read, print an error but continue to the next one.
+            // A byte channel rather than a FileChannel, so an archive entry is inflated as it is read.
+            try (SeekableByteChannel channel = Files.newByteChannel(io.resolve(path))) {
+                ByteBuffer chunk = ByteBuffer.wrap(buffer);
+                int n;
+                // checkError() turns true once the next stage has stopped reading
+                while ((n = channel.read(chunk.clear())) != -1 && !io.out().checkError()) {
+                    io.out().write(buffer, 0, n);
+                    io.bytesRead().add(n);
+                    io.bytesWritten().add(n);
+                }
+            } catch (NoSuchFileException e) {
+                io.err().println("Error: File not found: " + path);
+                io.fail();
+            } catch (IOException e) {
+                io.err().println("Error: cat: " + path + ": " + e.getMessage());
+                io.fail();
+            }
+        }
+        io.out().flush();
+    }
+
+    public void wc(ExecutionContext io, String[] args) {
+        // -l lines, -w words, -m characters, -c bytes; no flags means lines, words and bytes
+        boolean lines = false, words = false, chars = false, bytes = false;
+        List<String> paths = new ArrayList<>();
+
+        for (String arg : args) {
+            if (arg.length() > 1 && arg.startsWith("-")) {
+                for (char flag : arg.substring(1).toCharArray()) {
+                    switch (flag) {
+                        case 'l': lines = true; break;
+                        case 'w': words = true; break;
+                        case 'm': chars = true; break;
+                        case 'c': bytes = true; break;
+                        default:
+                            io.error("Error: wc: invalid option -" + flag);
+                            return;
+                    }
+                }
+            } else {
+                paths.add(arg);
+            }
+        }
+        if (!lines && !words && !chars && !bytes) {
+            lines = words = bytes = true;
+        }
+        boolean[] columns = {lines, words, chars, bytes};
+
+        if (paths.isEmpty() && io.in() != null) {
+            // Inside a pipeline: count the previous stage's output
+            try {
+                io.out().println(formatCounts(CountEngine.count(io.in()), columns, null));
+            } catch (IOException e) {
+                io.error("Error: wc: " + e.getMessage());
+            }
+            return;
+        }
+        if (paths.isEmpty()) {
+            io.error("Error: wc requires at least one file argument.");
+            return;
+        }
+
+        CountEngine.Counts total = new CountEngine.Counts();
+        for (String path : paths) {
+            Path file = io.resolve(path);
+
+            if (!Files.isRegularFile(file)) {
+                io.error("Error: No such file: " + path);
+                continue;
+            }
+
+            try {
+                CountEngine.Counts counts = CountEngine.count(file);
+                io.bytesRead().add(counts.bytes);
+                total.add(counts);
+                io.out().println(formatCounts(counts, columns, path));
+            } catch (IOException e) {
+                io.error("Error: wc: " + path + ": " + e.getMessage());
+            }
+        }
+        if (paths.size() > 1) {
+            io.out().println(formatCounts(total, columns, "total"));
+        }
+    }
+
+    // 'find [dir] [-name glob] [-type f|d] [-size [+-]N[ckMG]]'; dir defaults to the current directory
+    public void find(ExecutionContext io, String[] args) {
+        FindEngine find = new FindEngine();
+        String root = null;
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("-")) {
+                if (root != null) {
+                    io.error("Error: find: unexpected argument " + arg);
+                    return;
+                }
+                root = arg;
+                continue;
+            }
+            if (i + 1 == args.length) {
+                io.error("Error: find: missing value for " + arg);
+                return;
+            }
+            String value = args[++i];
+            try {
+                switch (arg) {
+                    case "-name":
+                        find.name(value);
+                        break;
+                    case "-type":
+                        if (!value.equals("f") && !value.equals("d")) throw new IllegalArgumentException();
+                        find.type(value.charAt(0));
+                        break;
+                    case "-size":
+                        find.size(value);
+                        break;
+                    default:
+                        io.error("Error: find: unknown predicate " + arg);
+                        return;
+                }
+            } catch (IllegalArgumentException e) {
+                io.error("Error: find: invalid value for " + arg + ": " + value);
+                return;
+            }
+        }
+        if (root == null) root = ".";
+
+        Path dir = io.resolve(root);
+        if (!directoryCache.stat(dir).exists) {
+            io.error("Error: find: " + root + ": No such file or directory");
+            return;
+        }
+
+        try {
+            find.walk(dir, root, (path, name) -> io.out().println(name), error -> {
+                io.err().println("Error: find: " + error);
+                io.fail();
+            });
+        } catch (IOException e) {
+            io.error("Error: find: " + DeleteEngine.reason(e));
+        }
+    }
+
+    /**
+     * 'grep [-r] [-c] [-l] [-E] [-a] pattern [path...]': prints matching lines, their count (-c) or the
+     * names of matching files (-l). The pattern is a literal string unless -E makes it a regular
+     * expression; -r searches directories, -a also searches binary files. Without paths it reads the
+     * previous pipeline stage, or with -r the current directory. Fails when nothing matched.
+     */
+    public void grep(ExecutionContext io, String[] args) {
+        boolean recursive = false, regex = false, binary = false;
+        GrepEngine.Mode mode = GrepEngine.Mode.LINES;
+        String pattern = null;
+        List<String> paths = new ArrayList<>();
+
+        for (String arg : args) {
+            if (pattern == null && arg.length() > 1 && arg.startsWith("-")) {
+                for (char flag : arg.substring(1).toCharArray()) {
+                    switch (flag) {
+                        case 'r': case 'R': recursive = true; break;
+                        case 'c': mode = GrepEngine.Mode.COUNT; break;
+                        case 'l': mode = GrepEngine.Mode.FILES; break;
+                        case 'E': regex = true; break;
+                        case 'a': binary = true; break;
+                        default:
+                            io.error("Error: grep: invalid option -" + flag);
+                            return;
+                    }
+                }
+            } else if (pattern == null) {
+                pattern = arg;
+            } else {
+                paths.add(arg);
+            }
+        }
+        if (pattern == null) {
+            io.error("Error: grep requires a pattern.");
+            return;
+        }
+
+        GrepEngine grep;
+        try {
+            grep = new GrepEngine(pattern, regex, mode, recursive || paths.size() > 1, binary);
+        } catch (PatternSyntaxException e) {
+            io.error("Error: grep: invalid regular expression: " + e.getDescription());
+            return;
+        }
+
+        try {
+            boolean matched;
+            if (paths.isEmpty() && !recursive) {
+                if (io.in() == null) {
+                    io.error("Error: grep requires at least one file argument.");
+                    return;
+                }
+                matched = grep.search(io.in(), "(standard input)", io.out());
+            } else {
+                if (paths.isEmpty()) paths.add(".");
+                List<GrepEngine.Target> targets = new ArrayList<>();
+                List<String> errors = new ArrayList<>();
+
+                for (String path : paths) {
+                    File file = localFile(io, "grep", io.resolve(path));
+                    if (file == null) return;
+                    DirectoryCache.Stat stat = directoryCache.stat(file.toPath());
+                    if (!stat.exists) {
+                        errors.add(path + ": No such file or directory");
+                    } else if (stat.directory) {
+                        if (recursive) {
+                            targets.addAll(FindEngine.files(file.toPath(), path, errors::add));
+                        } else {
+                            errors.add(path + ": Is a directory");
+                        }
+                    } else {
+                        targets.add(new GrepEngine.Target(file.toPath(), path));
+                    }
+                }
+
+                matched = grep.search(targets, io.out(), errors);
+                for (String error : errors) {
+                    io.err().println("Error: grep: " + error);
+                }
+                if (!errors.isEmpty()) io.fail();
+            }
+            if (!matched) io.fail();
+        } catch (IOException e) {
+            io.error("Error: grep: " + DeleteEngine.reason(e));
+        }
+    }
+
+    private String formatCounts(CountEngine.Counts counts, boolean[] columns, String name) {
+        long[] values = {counts.lines, counts.words, counts.chars, counts.bytes};
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (!columns[i]) continue;
+            if (line.length() > 0) line.append(' ');
+            line.append(values[i]);
+        }
+        if (name != null) {
+            line.append(' ').append(name);
+        }
+        return line.toString();
+    }
+
+    /**
+     * 'head [-n lines | -c bytes] [file...]' and 'tail [-f] [-n lines | -c bytes] [file...]': the first or
+     * last 10 lines, or as many lines or bytes as asked for ('-20' is short for '-n 20'). Without files
+     * they read the previous pipeline stage. 'tail -f' keeps printing what is appended to the file,
+     * across truncation and rotation, until its job is killed.
+     */
+    public void headTail(ExecutionContext io, String command, String[] args) {
+        boolean tail = command.equals("tail");
+        boolean lines = true;
+        boolean follow = false;
+        long count = 10;
+        List<String> paths = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.length() < 2 || !arg.startsWith("-")) {
+                paths.add(arg);
+            } else if (tail && arg.equals("-f")) {
+                follow = true;
+            } else if (arg.startsWith("-n") || arg.startsWith("-c")) {
+                lines = arg.charAt(1) == 'n';
+                String value = arg.length() > 2 ? arg.substring(2) : i + 1 < args.length ? args[++i] : null;
+                count = parseCount(value);
+                if (count < 0) {
+                    io.error("Error: " + command + ": invalid number of " + (lines ? "lines" : "bytes") + ": " + value);
+                    return;
+                }
+            } else if ((count = parseCount(arg.substring(1))) >= 0) {
+                lines = true;
+            } else {
+                io.error("Error: " + command + ": invalid option -" + arg.charAt(1));
+                return;
+            }
+        }
+
+        if (paths.isEmpty()) {
+            if (io.in() == null || follow) {
+                io.error("Error: " + command + (follow ? " -f requires a file argument." : " requires at least one file argument."));
+                return;
+            }
+            try {
+                long n = tail ? HeadTailEngine.tail(io.in(), count, lines, io.out())
+                        : HeadTailEngine.head(io.in(), count, lines, io.out());
+                io.bytesWritten().add(n);
+            } catch (IOException e) {
+                io.error("Error: " + command + ": " + e.getMessage());
+            }
+            return;
+        }
+        if (follow && paths.size() > 1) {
+            io.error("Error: tail -f follows a single file.");
+            return;
+        }
+
+        for (int i = 0; i < paths.size(); i++) {
+            String path = paths.get(i);
+            if (paths.size() > 1) {
+                io.out().println((i > 0 ? "\n" : "") + "==> " + path + " <==");
+            }
+            try {
+                if (tail) {
+                    tailFile(io, path, count, lines, follow);
+                } else {
+                    // head only reads as far as it prints, so it works on archive entries as well
+                    try (InputStream in = Files.newInputStream(io.resolve(path))) {
+                        long n = HeadTailEngine.head(in, count, lines, io.out());
+                        io.bytesRead().add(n);
+                        io.bytesWritten().add(n);
+                    }
+                }
+            } catch (NoSuchFileException e) {
+                io.error("Error: " + command + ": " + path + ": No such file");
+            } catch (IOException e) {
+                io.error("Error: " + command + ": " + path + ": " + DeleteEngine.reason(e));
+            }
+        }
+        io.out().flush();
+    }
+
+    // tail seeks from the end of the file, so it needs a local file rather than an archive entry
+    private void tailFile(ExecutionContext io, String path, long count, boolean lines, boolean follow)
+            throws IOException {
+        File file = localFile(io, "tail", io.resolve(path));
+        if (file == null) return;
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long start = lines ? HeadTailEngine.lastLinesStart(channel, size, count) : Math.max(0, size - count);
+            long n = HeadTailEngine.copy(channel, start, size, io.out());
+            if (follow) {
+                io.out().flush();
+                n += HeadTailEngine.follow(file.toPath(), path, channel, size, io.out(), io.err());
+            }
+            io.bytesRead().add(n);
+            io.bytesWritten().add(n);
+        }
+    }
+
+    // A line or byte count, or -1 if the value isn't one
+    private static long parseCount(String value) {
+        if (value == null) return -1;
+        try {
+            long count = Long.parseLong(value);
+            return count >= 0 ? count : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    public void zip(ExecutionContext io, String[] args) {
+        String usage = "Usage: zip [-r] [-u] [-0..-9] <archive-name.zip> <file_or_dir_1> [file_or_dir_2] ...";
+        boolean recursive = false;
+        boolean update = false;
+        int level = Deflater.DEFAULT_COMPRESSION;
+        int argOffset = 0;
+
+        // Leading flags, alone or combined as in -ru9; -0 stores everything, -1 to -9 trade speed for size
+        while (argOffset < args.length && args[argOffset].startsWith("-") && args[argOffset].length() > 1) {
+            for (char flag : args[argOffset].substring(1).toCharArray()) {
+                if (flag == 'r') {
+                    recursive = true;
+                } else if (flag == 'u') {
+                    update = true;
+                } else if (flag >= '0' && flag <= '9') {
+                    level = flag - '0';
+                } else {
+                    io.error("Error: zip: invalid option -" + flag);
+                    return;
+                }
+            }
+            argOffset++;
+        }
+        if (args.length - argOffset < 2) {
+            io.error(usage);
+            return;
+        }
+
+        String zipFilename = args[argOffset];
+        File zipFile = localFile(io, "zip", io.resolve(zipFilename));
+        if (zipFile == null) return;
+
+        // Entries are compressed on all cores and written in the order they are added here
+        ZipEngine zip = new ZipEngine(Runtime.getRuntime().availableProcessors(), level);
+
+        for (int i = argOffset + 1; i < args.length; i++) {
+            File fileToZip = localFile(io, "zip", io.resolve(args[i]));
+            if (fileToZip == null) return;
+
+            if (!fileToZip.exists()) {
+                io.out().println("Warning: File or directory not found, skipping: " + args[i]);
+                continue;
+            }
+
+            // If it's a directory and -r is set, use the recursive helper
+            if (fileToZip.isDirectory() && recursive) {
+                addDirectoryToZip(io, fileToZip, "", zip);
+
+                // If it's a file, use the original logic
+            } else if (fileToZip.isFile()) {
+                zip.addFile(fileToZip.getName(), fileToZip, "Added: " + args[i]);
+            } else if (fileToZip.isDirectory() && !recursive) {
+                io.out().println("Warning: Skipping directory (use -r to include): " + args[i]);
+            }
+        }
+
+        // -u on an archive that doesn't exist yet simply creates it
+        try (ZipIndex previous = update && zipFile.isFile() ? ZipIndex.open(zipFile) : null) {
+            if (previous != null) {
+                zip.update(previous);
+            }
+            io.bytesRead().add(zip.writeTo(zipFile, io.out()));
+            io.bytesWritten().add(zipFile.length());
+            directoryCache.invalidate(zipFile.toPath());
+            if (previous != null) {
+                io.out().println("Updated zip file: " + zipFilename + " (" + zip.reusedEntries() + " entries reused, "
+                        + zip.compressedEntries() + " compressed)");
+            } else {
+                io.out().println("Successfully created zip file: " + zipFilename);
+            }
+            if (zip.compressedEntries() > 0) {
+                io.out().println("Compression: " + zip.report());
+            }
+        } catch (IOException e) {
+            io.error("Error " + (update ? "updating" : "creating") + " zip file: " + e.getMessage());
+        }
+    }
+
+    public void unzip(ExecutionContext io, String[] args) {
+        String usage = "Usage: unzip <archive-name.zip> [entry patterns...] [-d /path/to/destination/]";
+        if (args.length == 0) {
+            io.error(usage);
+            return;
+        }
+
+        String zipFilename = null;
+        Path destinationPath = io.directory();
+        List<String> patterns = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-d")) {
+                if (i + 1 == args.length) {
+                    io.error(usage);
+                    return;
+                }
+                destinationPath = io.resolve(args[++i]);
+            } else if (zipFilename == null) {
+                zipFilename = args[i];
+            } else {
+                // anything after the archive name selects entries, e.g. 'lib/*.jar'
+                patterns.add(args[i]);
+            }
+        }
+
+        if (zipFilename == null) {
+            io.error(usage);
+            return;
+        }
+
+        File zipFile = localFile(io, "unzip", io.resolve(zipFilename));
+        File destinationDir = zipFile == null ? null : localFile(io, "unzip", destinationPath);
+        if (destinationDir == null) return;
+        if (!zipFile.exists() || !zipFile.isFile()) {
+            io.error("Error: Zip file not found: " + zipFilename);
+            return;
+        }
+
+        if (!destinationDir.exists()) {
+            destinationDir.mkdirs();
+        }
+
+        try {
+            directoryCache.invalidateTree(destinationDir.toPath());
+            int extracted = UnzipEngine.extract(zipFile, destinationDir, patterns,
+                    Runtime.getRuntime().availableProcessors(), io.out(), io.bytesWritten());
+            if (extracted == 0 && !patterns.isEmpty()) {
+                io.out().println("Warning: No entries match " + String.join(" ", patterns));
+            }
+            io.out().println("Successfully unzipped file: " + zipFilename);
+        } catch (IOException e) {
+            io.error("Error unzipping file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Opens the target of a '>' or '>>' redirection as a buffered stream over a FileChannel,
+     * so command output is written to disk as it is produced instead of being collected in memory.
+     * Returns null (after printing the error) if the file cannot be opened.
+     */
+    public PrintStream redirectoutput(ExecutionContext io, String filename, boolean append) {
+        File outputfile = localFile(io, "redirect", io.resolve(filename));
+        if (outputfile == null) return null;
+
+        try {
+            directoryCache.invalidate(outputfile.toPath());
+            FileChannel channel = append
+                    ? FileChannel.open(outputfile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)
+                    : FileChannel.open(outputfile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            return new PrintStream(new BufferedOutputStream(Channels.newOutputStream(channel), REDIRECT_BUFFER_SIZE), false);
+        } catch (IOException e) {
+            io.err().println("Error redirecting output: " + e.getMessage());
+            return null;
+        }
+    }
+
+    public void chooseCommandAction(ExecutionContext io, String command, String[] args) {
+        CommandRegistry.Registration registration = commands.lookup(command);
+        if (registration == null) {
+            io.error(" Unknown command: " + command);
+            return;
+        }
+        try {
+            commands.execute(registration, io, args);
+        } catch (Exception e) {
+            io.error(" Error: " + e.getMessage());
+        }
+    }
+
+    // Builtins, resolved once here instead of on every call
+    private void registerCommands() {
+        commands.register("pwd", (io, args) -> io.out().println(displayPath(io.directory())));
+        commands.register("cd", this::cd);
+        commands.register("ls", this::ls);
+        commands.register("mkdir", this::mkdir);
+        commands.register("rmdir", this::rmdir);
+        commands.register("touch", this::touch);
+        commands.register("rm", this::rm);
+        commands.register("cat", this::cat);
+        commands.register("find", this::find);
+        commands.register("grep", this::grep);
+        commands.register("wc", this::wc);
+        commands.register("head", (io, args) -> headTail(io, "head", args));
+        commands.register("tail", (io, args) -> headTail(io, "tail", args));
+        commands.register("cp", (io, args) -> {
+            if (args.length > 0 && args[0].equals("-r"))
+                cp_r(io, Arrays.copyOfRange(args, 1, args.length));
+            else
+                cp(io, args);
+        });
+        commands.register("zip", this::zip);
+        commands.register("unzip", this::unzip);
+        commands.register("dircache", (io, args) -> {
+            // hit/miss counts of the listing cache; 'dircache clear' empties it
+            if (args.length == 1 && args[0].equals("clear")) {
+                directoryCache.clear();
+            }
+            io.out().println(directoryCache.report());
+        });
+        commands.register("stats", this::stats);
+        commands.register("jfr", this::jfr);
+        commands.register("jobs", this::jobs);
+        commands.register("wait", this::waitJobs);
+        commands.register("fg", this::fg);
+        commands.register("kill", this::kill);
+        commands.register("exit", (io, args) -> {
+            File file = new File("temp.txt");
+            file.delete(); // This is no longer needed since 'cat' is fixed
+            io.out().println("Exiting CLI...");
+            running = false; // main loop stops after flushing output
+        });
+    }
+
+    // 'stats' prints per-command calls, errors, latency and bytes; 'stats -j' as JSON, 'stats reset' clears them
+    public void stats(ExecutionContext io, String[] args) {
+        if (args.length == 0) {
+            io.out().print(commands.report());
+        } else if (args.length == 1 && args[0].equals("-j")) {
+            io.out().println(commands.reportJson());
+        } else if (args.length == 1 && args[0].equals("reset")) {
+            commands.reset();
+        } else {
+            io.error("Usage: stats [-j | reset]");
+        }
+    }
+
+    /**
+     * 'jfr start [default | profile]' starts a flight recording of this JVM with the given settings plus
+     * the CLD command, file and directory events; 'jfr dump file' writes what has been recorded so far;
+     * 'jfr stop [file]' ends it, writing it first if a file is given; 'jfr' alone says whether one is running.
+     */
+    public synchronized void jfr(ExecutionContext io, String[] args) {
+        String usage = "Usage: jfr [start [default | profile] | dump <file> | stop [file]]";
+        if (args.length == 0) {
+            io.out().println(recording == null ? "No recording running."
+                    : "Recording " + recording.getId() + " running since " + recording.getStartTime()
+                    + " (" + recording.getSize() + " bytes so far)");
+            return;
+        }
+
+        try {
+            switch (args[0]) {
+                case "start":
+                    if (args.length > 2) {
+                        io.error(usage);
+                        return;
+                    }
+                    if (recording != null) {
+                        io.error("Error: jfr: recording " + recording.getId() + " is already running");
+                        return;
+                    }
+                    Recording started = new Recording(Configuration.getConfiguration(args.length == 2 ? args[1] : "default"));
+                    started.setName("CLD session");
+                    started.enable(FlightEvents.Command.class);
+                    started.enable(FlightEvents.FileTransfer.class);
+                    started.enable(FlightEvents.DirectoryScan.class);
+                    started.start();
+                    recording = started;
+                    io.out().println("Started recording " + started.getId());
+                    break;
+                case "dump":
+                case "stop":
+                    if (args.length > 2 || (args[0].equals("dump") && args.length != 2)) {
+                        io.error(usage);
+                        return;
+                    }
+                    if (recording == null) {
+                        io.error("Error: jfr: no recording running");
+                        return;
+                    }
+                    if (args.length == 2) {
+                        File file = localFile(io, "jfr", io.resolve(args[1]));
+                        if (file == null) return;
+                        recording.dump(file.toPath());
+                        directoryCache.invalidate(file.toPath());
+                        io.out().println("Recording written to " + file.getPath());
+                    }
+                    if (args[0].equals("stop")) {
+                        recording.close();
+                        recording = null;
+                        io.out().println("Recording stopped.");
+                    }
+                    break;
+                default:
+                    io.error(usage);
+            }
+        } catch (IOException | ParseException | IllegalStateException | SecurityException e) {
+            io.error("Error: jfr: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Runs each stage of a '|' pipeline on its own (virtual, where available) thread, joined by bounded pipes,
+     * so stages overlap and no intermediate result is ever held in full.
+     * The last stage writes to the given context; the first stage reads from it.
+     * Returns the exit status of the last stage.
+     */
+    public int runPipeline(ExecutionContext io, List<String[]> stages) {
+        if (stages.size() == 1) {
+            String[] stage = stages.get(0);
+            chooseCommandAction(io, stage[0], Arrays.copyOfRange(stage, 1, stage.length));
+            return io.status();
+        }
+
+        Thread[] threads = new Thread[stages.size()];
+        InputStream nextIn = io.in();
+        ExecutionContext lastIo = null;
+
+        for (int i = 0; i < stages.size(); i++) {
+            String[] stage = stages.get(i);
+            boolean last = i == stages.size() - 1;
+            InputStream stageIn = nextIn;
+            PrintStream stageOut;
+
+            if (last) {
+                stageOut = io.out();
+            } else {
+                Pipe pipe = new Pipe(PIPE_BUFFER_SIZE);
+                stageOut = new PrintStream(new BufferedOutputStream(pipe.sink(), PIPE_BUFFER_SIZE), false);
+                nextIn = pipe.source();
+            }
+
+            ExecutionContext stageIo = io.withStreams(stageIn, stageOut, io.err());
+            if (last) {
+                lastIo = stageIo;
+            }
+            threads[i] = Threads.start("pipe-" + i + "-" + stage[0], () -> {
+                try {
+                    chooseCommandAction(stageIo, stage[0], Arrays.copyOfRange(stage, 1, stage.length));
+                } finally {
+                    if (last) {
+                        stageOut.flush();
+                    } else {
+                        stageOut.close(); // end of input for the next stage
+                    }
+                    if (stageIn != null && stageIn != io.in()) {
+                        try {
+                            stageIn.close(); // unblock the previous stage if we stopped reading early
+                        } catch (IOException ignored) {
+                        }
+                    }
+                }
+            });
+        }
+
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                // the pipeline's job was killed: stop every stage, e.g. a 'tail -f' feeding grep
+                for (Thread stage : threads) {
+                    stage.interrupt();
+                }
+                Thread.currentThread().interrupt();
+                return 1;
+            }
+        }
+        return lastIo.status();
+    }
+
+    /**
+     * Parses and runs one input line, including its redirection.
+     * Returns the exit status, or -1 for a blank line or comment.
+     */
+    public int runLine(String input) {
+        try {
+            String trimmed = input.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) return -1;
+            if (!parser.parse(trimmed)) {
+                if (parser.getError() != null) stdout.println(parser.getError());
+                return 1;
+            }
+            return runList(parser.getCommandLine());
+        } finally {
+            reportDoneJobs(stdout);
+            stdout.flush();
+            stderr.flush();
+        }
+    }
+
+    /**
+     * Runs the pipelines of a line in order. After '&&' the next pipeline only runs if the last one
+     * that ran succeeded, after '||' only if it failed. Returns the status of the last one that ran.
+     */
+    int runList(CommandLine line) {
+        int status = 0;
+        for (int i = 0; i < line.size() && running; i++) {
+            CommandLine.Connector connector = line.connector(i);
+            if (connector == CommandLine.Connector.AND && status != 0) continue;
+            if (connector == CommandLine.Connector.OR && status == 0) continue;
+
+            CommandLine.Pipeline pipeline = line.pipeline(i);
+            if (pipeline.background) {
+                // the job works in a copy of the current directory, so its 'cd' stays its own
+                Path directory = currentDirectory;
+                JobTable.Job job = jobs.start(pipeline.toString(), pipeline.follows(),
+                        out -> runRedirected(pipeline, new ExecutionContext(null, out, out, directory)));
+                stdout.println("[" + job.id + "] " + job.command);
+                status = 0;
+            } else {
+                ExecutionContext io = new ExecutionContext(null, stdout, stderr, currentDirectory);
+                status = runRedirected(pipeline, io);
+                io.flush();
+                currentDirectory = io.directory();
+            }
+        }
+        return status;
+    }
+
+    // Runs a pipeline with its output going to its redirection file if it has one, else to io
+    private int runRedirected(CommandLine.Pipeline pipeline, ExecutionContext io) {
+        String redirectfile = pipeline.redirectFile;
+
+        if (redirectfile != null) {
+            PrintStream ps = redirectoutput(io, redirectfile, pipeline.append);
+            if (ps == null) return 1;
+
+            ExecutionContext redirected = io.withStreams(null, ps, ps);
+            try {
+                return runPipeline(redirected, pipeline.stages);
+            } finally {
+                io.setDirectory(redirected.directory());
+                ps.close();
+                if (ps.checkError()) {
+                    io.err().println("Error redirecting output: could not write to " + redirectfile);
+                }
+            }
+        }
+        return runPipeline(io, pipeline.stages);
+    }
+
+    // 'jobs' lists background jobs that have not been reaped yet
+    public void jobs(ExecutionContext io, String[] args) {
+        for (JobTable.Job job : jobs.all()) {
+            io.out().println(job.describe());
+        }
+    }
+
+    // 'wait [id...]' waits for the given jobs, or all of them, and prints their output
+    public void waitJobs(ExecutionContext io, String[] args) {
+        List<JobTable.Job> targets = new ArrayList<>();
+        for (String arg : args) {
+            JobTable.Job job = findJob(arg);
+            if (job == null) {
+                io.error("Error: wait: no such job: " + arg);
+                return;
+            }
+            targets.add(job);
+        }
+        if (targets.isEmpty()) {
+            targets = jobs.all();
+        }
+
+        try {
+            for (JobTable.Job job : targets) {
+                reap(job, io.out());
+                if (job.status() != 0) io.fail();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            io.error("Error: wait: interrupted");
+        }
+    }
+
+    // 'fg [id]' brings a job, by default the latest one, to the foreground and follows its output
+    public void fg(ExecutionContext io, String[] args) {
+        if (args.length > 1) {
+            io.error("Error: fg takes at most one job id.");
+            return;
+        }
+        JobTable.Job job = args.length == 0 ? jobs.latest() : findJob(args[0]);
+        if (job == null) {
+            io.error(args.length == 0 ? "Error: fg: no current job" : "Error: fg: no such job: " + args[0]);
+            return;
+        }
+
+        io.out().println(job.command);
+        try {
+            reap(job, io.out());
+            if (job.status() != 0) io.fail();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            io.error("Error: fg: interrupted");
+        }
+    }
+
+    // 'kill id...' stops background jobs, e.g. a 'tail -f'; a job still waiting for a slot never starts
+    public void kill(ExecutionContext io, String[] args) {
+        if (args.length == 0) {
+            io.error("Error: kill requires at least one job id.");
+            return;
+        }
+        for (String arg : args) {
+            JobTable.Job job = findJob(arg);
+            if (job == null) {
+                io.error("Error: kill: no such job: " + arg);
+            } else {
+                job.kill();
+            }
+        }
+    }
+
+    // Job by "N" or "%N", or null
+    private JobTable.Job findJob(String id) {
+        try {
+            return jobs.get(Integer.parseInt(id.startsWith("%") ? id.substring(1) : id));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // Prints the job's output as it arrives, then its final state, and forgets the job
+    private void reap(JobTable.Job job, PrintStream out) throws InterruptedException {
+        job.follow(out);
+        job.await();
+        out.println(job.describe());
+        jobs.remove(job);
+    }
+
+    // Done notices for jobs that finished since the last command, printed between commands
+    private void reportDoneJobs(PrintStream out) {
+        for (JobTable.Job job : jobs.done()) {
+            try {
+                reap(job, out);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Lets jobs still running when the session ends finish, so their work is not cut off.
+     * Jobs that never end by themselves, like a 'tail -f', are killed first.
+     */
+    void finishJobs() {
+        for (JobTable.Job job : jobs.all()) {
+            if (job.endless) job.kill();
+        }
+        for (JobTable.Job job : jobs.all()) {
+            try {
+                reap(job, stdout);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Non-interactive mode for scripts: no prompt or banner, and stdout/stderr are block-buffered
+     * and flushed once per command instead of on every line. With exitOnError the script stops
+     * at the first failing command. Prints the command rate to stderr at the end and returns
+     * the status of the last command.
+     */
+    public int runBatch(BufferedReader script, boolean exitOnError) throws IOException {
+        long commands = 0;
+        int status = 0;
+        long start = System.nanoTime();
+        String line;
+
+        while (running && (line = script.readLine()) != null) {
+            int result = runLine(line);
+            if (result == -1) continue;
+
+            commands++;
+            status = result;
+            if (status != 0 && exitOnError) {
+                stderr.println("Stopped at line with error: " + line.trim());
+                break;
+            }
+        }
+
+        finishJobs();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        stderr.printf("%d commands in %.3f s (%.0f commands/sec)%n", commands, seconds, seconds > 0 ? commands / seconds : 0.0);
+        stdout.flush();
+        stderr.flush();
+        return status;
+    }
+
+    /**
+     * Usage: Terminal [-c command | -f script] [-e] [-i] [-j jobs]
+     * -c runs a single command line and exits with its status, -f runs the commands in a file,
+     * -e stops at the first failing command, -i forces the interactive prompt even when stdin is
+     * not a terminal, -j caps how many background jobs run at once.
+     */
+    public static void main(String[] args) throws IOException {
+        String usage = "Usage: Terminal [-c command | -f script] [-e] [-i] [-j jobs]";
+        String command = null;
+        String scriptFile = null;
+        boolean exitOnError = false;
+        boolean forceInteractive = false;
+        int maxJobs = JobTable.DEFAULT_MAX_RUNNING;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-c":
+                    // one command line, run without the prompt, the banner or the batch summary
+                    if (i + 1 == args.length) {
+                        System.err.println(usage);
+                        System.exit(2);
+                    }
+                    command = args[++i];
+                    break;
+                case "-f":
+                    if (i + 1 == args.length) {
+                        System.err.println(usage);
+                        System.exit(2);
+                    }
+                    scriptFile = args[++i];
+                    break;
+                case "-e":
+                    exitOnError = true;
+                    break;
+                case "-i":
+                    forceInteractive = true;
+                    break;
+                case "-j":
+                    // how many background jobs may run at once
+                    try {
+                        maxJobs = Integer.parseInt(args[++i]);
+                    } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                        maxJobs = 0;
+                    }
+                    if (maxJobs < 1) {
+                        System.err.println(usage);
+                        System.exit(2);
+                    }
+                    break;
+                default:
+                    System.err.println(usage);
+                    System.exit(2);
+            }
+        }
+
+        Terminal terminal = new Terminal(maxJobs);
+
+        if (command != null) {
+            int status = terminal.runLine(command);
+            terminal.finishJobs();
+            terminal.stdout.flush();
+            terminal.stderr.flush();
+            exit(terminal, Math.max(status, 0));
+        }
+        if (scriptFile != null) {
+            try (BufferedReader script = new BufferedReader(new FileReader(scriptFile), BATCH_BUFFER_SIZE)) {
+                exit(terminal, terminal.runBatch(script, exitOnError));
+            } catch (FileNotFoundException e) {
+                System.err.println("Error: Script not found: " + scriptFile);
+                System.exit(2);
+            }
+        }
+        if (!forceInteractive && System.console() == null) {
+            // stdin is a pipe or file: run it as a script
+            BufferedReader script = new BufferedReader(new InputStreamReader(System.in), BATCH_BUFFER_SIZE);
+            exit(terminal, terminal.runBatch(script, exitOnError));
+        }
+
+        Scanner scanner = new Scanner(System.in);
+
+        terminal.stdout.println(" Command Line Interpreter (Type 'exit' to quit)");
+
+        while (terminal.running) {
+            terminal.stdout.print(terminal.pwd() + " >> ");
+            terminal.stdout.flush();
+            if (!scanner.hasNextLine()) break;
+            String input = scanner.nextLine();
+
+            terminal.runLine(input);
+        }
+        terminal.finishJobs();
+        terminal.stdout.flush();
+        exit(terminal, 0);
+    }
+
+    // Closes the directory watcher first, which otherwise holds up the JVM's exit
+    private static void exit(Terminal terminal, int status) {
+        terminal.directoryCache.close();
+        System.exit(status);
+    }
+}
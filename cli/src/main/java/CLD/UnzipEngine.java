@@ -0,0 +1,207 @@
+package CLD;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Extraction for 'unzip' driven by the archive's central directory.
+ * ZipFile can open any entry directly, so only the selected entries are read and the
+ * files are inflated on a pool of worker threads. Every worker repeats the zip-slip check
+ * for the entry it writes.
+ */
+final class UnzipEngine {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private UnzipEngine() {
+    }
+
+    /**
+     * Extracts the entries matching any of the patterns (all entries if there are none)
+     * into destinationDir, printing "Unzipped: path" for each in archive order.
+     * Returns the number of entries extracted; the bytes written are added to bytesWritten.
+     */
+    static int extract(File zipFile, File destinationDir, List<String> patterns, int threads, PrintStream log,
+                       LongAdder bytesWritten) throws IOException {
+        ZipFile zip;
+        try {
+            zip = new ZipFile(zipFile);
+        } catch (ZipException e) {
+            // No readable central directory (e.g. a truncated archive): read the entries in order instead.
+            // A bad entry found once extraction has started is an error, not a reason to start over.
+            if (!patterns.isEmpty()) throw e;
+            return extractSequential(zipFile, destinationDir, log, bytesWritten);
+        }
+        try (zip) {
+            return extractIndexed(zip, destinationDir, patterns, threads, log, bytesWritten);
+        }
+    }
+
+    private static int extractIndexed(ZipFile zip, File destinationDir, List<String> patterns, int threads,
+                                      PrintStream log, LongAdder bytesWritten) throws IOException {
+        List<Pattern> selectors = new ArrayList<>();
+        for (String pattern : patterns) {
+            selectors.add(Glob.compile(pattern));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread t = new Thread(r, "unzip-inflate");
+            t.setDaemon(true);
+            return t;
+        });
+
+        try {
+            List<Future<File>> results = new ArrayList<>();
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (!selectors.isEmpty() && !matches(selectors, entry.getName())) {
+                    continue;
+                }
+                results.add(pool.submit(() -> extractEntry(zip, entry, destinationDir, bytesWritten)));
+            }
+
+            for (Future<File> result : results) {
+                log.println("Unzipped: " + await(result).getPath());
+            }
+            return results.size();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Resolves an entry name against the destination, refusing names that would land outside it.
+     */
+    static File checkedTarget(File destinationDir, String entryName) throws IOException {
+        File newFile = new File(destinationDir, entryName);
+
+        // compared a path element at a time, so "/dest-other" isn't inside "/dest" and everything is inside "/"
+        Path canonicalDestDir = destinationDir.getCanonicalFile().toPath();
+        Path canonicalNewFile = newFile.getCanonicalFile().toPath();
+        if (!canonicalNewFile.startsWith(canonicalDestDir)) {
+            throw new IOException("Zip slip vulnerability detected! Entry: " + entryName);
+        }
+        return newFile;
+    }
+
+    private static File extractEntry(ZipFile zip, ZipEntry entry, File destinationDir, LongAdder bytesWritten)
+            throws IOException {
+        FlightEvents.FileTransfer event = FlightEvents.fileTransfer();
+        File newFile = checkedTarget(destinationDir, entry.getName());
+
+        if (entry.isDirectory()) {
+            if (!newFile.isDirectory() && !newFile.mkdirs() && !newFile.isDirectory()) {
+                throw new IOException("Failed to create directory: " + newFile);
+            }
+            return newFile;
+        }
+
+        File parent = newFile.getParentFile();
+        // mkdirs can lose a race with another worker creating the same parent, hence the second check
+        if (!parent.isDirectory() && !parent.mkdirs() && !parent.isDirectory()) {
+            throw new IOException("Failed to create parent directory: " + parent);
+        }
+
+        long written = 0;
+        try (InputStream in = zip.getInputStream(entry);
+             OutputStream out = new BufferedOutputStream(new FileOutputStream(newFile), BUFFER_SIZE)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int len;
+            while ((len = in.read(buffer)) > 0) {
+                out.write(buffer, 0, len);
+                bytesWritten.add(len);
+                written += len;
+            }
+        }
+        if (entry.getTime() != -1) {
+            newFile.setLastModified(entry.getTime());
+        }
+        if (event != null) event.commit("unzip", newFile, written);
+        return newFile;
+    }
+
+    // Streams through the local headers one entry at a time; returns the number of entries extracted
+    private static int extractSequential(File zipFile, File destinationDir, PrintStream log, LongAdder bytesWritten)
+            throws IOException {
+        int extracted = 0;
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (FileInputStream fis = new FileInputStream(zipFile);
+             ZipInputStream zis = new ZipInputStream(new BufferedInputStream(fis))) {
+
+            ZipEntry zipEntry;
+            while ((zipEntry = zis.getNextEntry()) != null) {
+                File newFile = checkedTarget(destinationDir, zipEntry.getName());
+
+                if (zipEntry.isDirectory()) {
+                    if (!newFile.isDirectory() && !newFile.mkdirs()) {
+                        throw new IOException("Failed to create directory: " + newFile);
+                    }
+                } else {
+                    File parent = newFile.getParentFile();
+                    if (!parent.isDirectory() && !parent.mkdirs()) {
+                        throw new IOException("Failed to create parent directory: " + parent);
+                    }
+
+                    FlightEvents.FileTransfer event = FlightEvents.fileTransfer();
+                    long written = 0;
+                    try (OutputStream out = new BufferedOutputStream(new FileOutputStream(newFile), BUFFER_SIZE)) {
+                        int len;
+                        while ((len = zis.read(buffer)) > 0) {
+                            out.write(buffer, 0, len);
+                            bytesWritten.add(len);
+                            written += len;
+                        }
+                    }
+                    if (event != null) event.commit("unzip", newFile, written);
+                }
+                zis.closeEntry();
+                log.println("Unzipped: " + newFile.getPath());
+                extracted++;
+            }
+        }
+        return extracted;
+    }
+
+    private static boolean matches(List<Pattern> selectors, String name) {
+        for (Pattern selector : selectors) {
+            if (selector.matcher(name).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static File await(Future<File> result) throws IOException {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while unzipping");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        }
+    }
+}
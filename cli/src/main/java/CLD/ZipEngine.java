@@ -0,0 +1,539 @@
+package CLD;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Builds 'zip' archives with the deflate work spread over a pool of threads, pigz-style.
+ * Every file is cut into 1 MB chunks; each chunk is deflated independently on a worker with its own
+ * Deflater (primed with the previous 32 KB as dictionary so the ratio barely suffers), and ends
+ * on a byte boundary so the chunks can simply be concatenated into one deflate stream.
+ * The calling thread writes the chunks in the order the entries were added, so the archive
+ * is identical no matter how many threads produced it.
+ * When updating an existing archive, files that haven't changed since it was written are copied
+ * across still compressed, so only new and modified files go through the deflate pool.
+ * Files that won't get smaller are stored rather than deflated: those with the extension of a
+ * compressed format, and those whose first block barely shrinks in a quick trial deflate.
+ */
+final class ZipEngine {
+    static final int CHUNK_SIZE = 1024 * 1024;
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+    // How much of a file the trial deflate looks at, and how much it must save for the file to be deflated
+    private static final int SAMPLE_SIZE = 64 * 1024;
+    private static final double MIN_SAVING = 0.05;
+    // Formats that are compressed already; deflating them costs CPU for next to nothing
+    private static final Set<String> COMPRESSED_EXTENSIONS = Set.of(
+            "zip", "jar", "war", "ear", "apk", "aar", "whl", "docx", "xlsx", "pptx", "odt", "ods", "odp", "epub",
+            "gz", "tgz", "bz2", "tbz2", "xz", "txz", "lz4", "lzma", "zst", "7z", "rar",
+            "png", "jpg", "jpeg", "gif", "webp", "heic", "avif",
+            "mp3", "m4a", "aac", "ogg", "opus", "flac", "mp4", "m4v", "mkv", "mov", "avi", "webm",
+            "woff", "woff2");
+
+    private final List<Entry> entries = new ArrayList<>();
+    private final int threads;
+    private final int level;
+    private ZipIndex previous;
+    private int reusedCount;
+    private int compressedCount;
+
+    // What the last writeTo did with the files it compressed, for report()
+    private int storedCount;
+    private long inputBytes;
+    private long outputBytes;
+    private long elapsedNanos;
+    private final LongAdder workerNanos = new LongAdder();
+
+    private static final class Entry {
+        final String name;
+        final File file;
+        final boolean directory;
+        final String message;
+
+        // Entry of the archive being updated whose data is copied instead, if any
+        ZipIndex.Record reuse;
+
+        // Filled in while the entry is being written
+        FileChannel channel;
+        Future<Integer> method;
+        FlightEvents.FileTransfer event;
+        long crc;
+        long size;
+        long compressedSize;
+
+        Entry(String name, File file, boolean directory, String message) {
+            this.name = name;
+            this.file = file;
+            this.directory = directory;
+            this.message = message;
+        }
+    }
+
+    private static final class Chunk {
+        final Entry entry;
+        final boolean first;
+        final boolean last;
+        final Future<Compressed> result;
+
+        Chunk(Entry entry, boolean first, boolean last, Future<Compressed> result) {
+            this.entry = entry;
+            this.first = first;
+            this.last = last;
+            this.result = result;
+        }
+    }
+
+    private static final class Compressed {
+        final byte[] data;
+        final long crc;
+        final long length;
+
+        Compressed(byte[] data, long crc, long length) {
+            this.data = data;
+            this.crc = crc;
+            this.length = length;
+        }
+    }
+
+    // Per-worker state, reused for every chunk the worker compresses
+    private static final class Compressor {
+        final Deflater deflater;
+        final Deflater trial = new Deflater(Deflater.BEST_SPEED, true);
+        final byte[] input = new byte[DICTIONARY_SIZE + CHUNK_SIZE];
+        byte[] output = new byte[CHUNK_SIZE + CHUNK_SIZE / 8];
+        final CRC32 crc = new CRC32();
+
+        Compressor(int level) {
+            deflater = new Deflater(level, true);
+        }
+    }
+
+    // level is 0 (store everything) to 9, or Deflater.DEFAULT_COMPRESSION
+    ZipEngine(int threads, int level) {
+        this.threads = Math.max(1, threads);
+        this.level = level;
+    }
+
+    ZipEngine() {
+        this(Runtime.getRuntime().availableProcessors(), Deflater.DEFAULT_COMPRESSION);
+    }
+
+    // The message is printed once the entry has been written to the archive
+    void addDirectory(String name, File dir, String message) {
+        entries.add(new Entry(name.endsWith("/") ? name : name + "/", dir, true, message));
+    }
+
+    void addFile(String name, File file, String message) {
+        entries.add(new Entry(name, file, false, message));
+    }
+
+    /**
+     * Makes writeTo update the archive read into previous rather than start afresh. Its entries keep their
+     * place; the ones not added again are kept as they are. An added file is copied from its old entry
+     * when its size and modification time match it, or when only the time differs but its CRC still matches.
+     * Entries that are neither in the archive nor added again come last, in the order they were added.
+     * writeTo closes previous before it replaces the archive.
+     */
+    void update(ZipIndex previous) {
+        this.previous = previous;
+    }
+
+    // Entries copied from the previous archive by the last writeTo
+    int reusedEntries() {
+        return reusedCount;
+    }
+
+    // Files deflated or stored by the last writeTo
+    int compressedEntries() {
+        return compressedCount;
+    }
+
+    // Bytes saved against time spent by the last writeTo, on the files it compressed
+    String report() {
+        long saved = inputBytes - outputBytes;
+        return String.format("%d deflated, %d stored: %d -> %d bytes (%d saved, %.1f%%) in %.2f s, %.2f s of compression on %d %s",
+                compressedCount - storedCount, storedCount, inputBytes, outputBytes, saved,
+                inputBytes > 0 ? 100.0 * saved / inputBytes : 0.0, elapsedNanos / 1e9, workerNanos.sum() / 1e9,
+                threads, threads == 1 ? "thread" : "threads");
+    }
+
+    /**
+     * Writes the archive and returns the number of uncompressed bytes read. An update is written
+     * next to the archive and moved over it once complete, so a failure leaves the old one intact.
+     */
+    long writeTo(File zipFile, PrintStream log) throws IOException {
+        if (previous == null) {
+            return write(entries, zipFile, log);
+        }
+
+        List<Entry> merged = new ArrayList<>();
+        long checked = merge(merged);
+        Path temp = Files.createTempFile(zipFile.getAbsoluteFile().getParentFile().toPath(), zipFile.getName(), ".tmp");
+        try {
+            long total = write(merged, temp.toFile(), log);
+            // every reused entry has been copied; the old archive can't be replaced while it is open on Windows
+            previous.close();
+            Files.move(temp, zipFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return checked + total;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Lays the added entries over the previous archive's, deciding which can be copied; returns the bytes read doing so
+    private long merge(List<Entry> merged) throws IOException {
+        Map<String, Entry> added = new LinkedHashMap<>();
+        List<Entry> duplicates = new ArrayList<>();
+        for (Entry entry : entries) {
+            if (added.putIfAbsent(entry.name, entry) != null) duplicates.add(entry);
+        }
+
+        long checked = 0;
+        for (ZipIndex.Record record : previous.records()) {
+            Entry entry = added.remove(record.name);
+            if (entry == null) {
+                entry = new Entry(record.name, null, record.name.endsWith("/"), null);
+                entry.reuse = record;
+            } else if (!entry.directory) {
+                long size = entry.file.length();
+                if (record.matches(size, entry.file.lastModified())) {
+                    entry.reuse = record;
+                } else if (size == record.size) {
+                    // touched but maybe not changed: a CRC pass is far cheaper than deflating again
+                    checked += size;
+                    if (crc(entry.file) == record.crc) entry.reuse = record;
+                }
+            }
+            merged.add(entry);
+        }
+        merged.addAll(added.values());
+        merged.addAll(duplicates);
+        return checked;
+    }
+
+    private static long crc(File file) throws IOException {
+        CRC32 crc = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_SIZE);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            while (channel.read(buffer.clear()) != -1) {
+                crc.update(buffer.flip());
+            }
+        }
+        return crc.getValue();
+    }
+
+    private long write(List<Entry> entries, File zipFile, PrintStream log) throws IOException {
+        long started = System.nanoTime();
+        reusedCount = 0;
+        compressedCount = 0;
+        storedCount = 0;
+        inputBytes = 0;
+        outputBytes = 0;
+        workerNanos.reset();
+        Queue<Compressor> compressors = new ConcurrentLinkedQueue<>();
+        ThreadLocal<Compressor> local = ThreadLocal.withInitial(() -> {
+            Compressor c = new Compressor(level);
+            compressors.add(c);
+            return c;
+        });
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "zip-deflate");
+            t.setDaemon(true);
+            return t;
+        });
+        // Bounds both the memory held by finished chunks and the number of open input files
+        int maxInFlight = threads * 4;
+        Deque<Chunk> inFlight = new ArrayDeque<>();
+
+        try (ZipWriter writer = new ZipWriter(zipFile)) {
+            for (Entry entry : entries) {
+                if (entry.directory || entry.reuse != null) {
+                    inFlight.add(new Chunk(entry, true, true, null));
+                } else {
+                    entry.event = FlightEvents.fileTransfer();
+                    FileChannel channel = FileChannel.open(entry.file.toPath(), StandardOpenOption.READ);
+                    entry.channel = channel;
+                    long fileSize = channel.size();
+                    long chunks = Math.max(1, (fileSize + CHUNK_SIZE - 1) / CHUNK_SIZE);
+                    // the chunk tasks wait for the sample, which was queued before them
+                    Future<Integer> method = level == 0 || fileSize == 0 || hasCompressedExtension(entry.name)
+                            ? CompletableFuture.completedFuture(ZipWriter.STORED)
+                            : pool.submit(() -> timed(() -> chooseMethod(local.get(), channel, fileSize)));
+                    entry.method = method;
+
+                    for (long k = 0; k < chunks; k++) {
+                        long start = k * CHUNK_SIZE;
+                        boolean last = k == chunks - 1;
+                        int length = (int) Math.min(CHUNK_SIZE, fileSize - start);
+                        Future<Compressed> result = pool.submit(() -> timed(() -> compressChunk(local.get(), channel, start,
+                                length, last, method.get() == ZipWriter.STORED)));
+                        inFlight.add(new Chunk(entry, k == 0, last, result));
+                        while (inFlight.size() > maxInFlight) {
+                            writeChunk(writer, inFlight.poll(), log);
+                        }
+                    }
+                }
+                while (inFlight.size() > maxInFlight) {
+                    writeChunk(writer, inFlight.poll(), log);
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                writeChunk(writer, inFlight.poll(), log);
+            }
+        } finally {
+            pool.shutdownNow();
+            for (Entry entry : entries) {
+                if (entry.channel != null) {
+                    try {
+                        entry.channel.close();
+                    } catch (IOException ignored) {
+                    }
+                }
+            }
+            for (Compressor c : compressors) {
+                c.deflater.end();
+                c.trial.end();
+            }
+        }
+        elapsedNanos = System.nanoTime() - started;
+
+        long total = 0;
+        for (Entry entry : entries) {
+            total += entry.size;
+        }
+        return total;
+    }
+
+    private void writeChunk(ZipWriter writer, Chunk chunk, PrintStream log) throws IOException {
+        Entry entry = chunk.entry;
+        if (entry.reuse != null) {
+            FlightEvents.FileTransfer event = FlightEvents.fileTransfer();
+            ZipIndex.Record record = entry.reuse;
+            long lastModified = entry.file != null ? entry.file.lastModified() : record.lastModified();
+            writer.copyEntry(entry.name, record.method, lastModified, record.crc, record.compressedSize, record.size,
+                    previous.channel(), previous.dataOffset(record));
+            reusedCount++;
+            if (event != null) event.commit("zip-reuse", entry.name, record.size);
+            return;
+        }
+        if (entry.directory) {
+            writer.addDirectory(entry.name, entry.file.lastModified());
+            log.println(entry.message);
+            return;
+        }
+
+        Compressed compressed = await(chunk.result, entry);
+
+        if (chunk.first) {
+            int method = await(entry.method, entry);
+            writer.beginEntry(entry.name, method, entry.file.lastModified(), entry.channel.size());
+            if (method == ZipWriter.STORED) storedCount++;
+            entry.crc = 0;
+            entry.size = 0;
+            entry.compressedSize = 0;
+        }
+        writer.write(compressed.data);
+        entry.crc = crc32Combine(entry.crc, compressed.crc, compressed.length);
+        entry.size += compressed.length;
+        entry.compressedSize += compressed.data.length;
+
+        if (chunk.last) {
+            writer.endEntry(entry.crc, entry.size);
+            compressedCount++;
+            inputBytes += entry.size;
+            outputBytes += entry.compressedSize;
+            // spans the whole pipeline for the file: opening, deflate on the pool and writing
+            if (entry.event != null) entry.event.commit("zip", entry.file, entry.size);
+            entry.channel.close();
+            entry.channel = null;
+            log.println(entry.message);
+        }
+    }
+
+    private static <T> T await(Future<T> result, Entry entry) throws IOException {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while compressing " + entry.name);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        }
+    }
+
+    // Runs a worker task, adding the time it took to the compression time in the report
+    private <T> T timed(Callable<T> task) throws Exception {
+        long start = System.nanoTime();
+        try {
+            return task.call();
+        } finally {
+            workerNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    private static boolean hasCompressedExtension(String name) {
+        int dot = name.lastIndexOf('.');
+        return dot > name.lastIndexOf('/') && COMPRESSED_EXTENSIONS.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    // DEFLATED if a fast deflate of the file's first block saves at least MIN_SAVING, STORED if not
+    private static int chooseMethod(Compressor c, FileChannel channel, long fileSize) throws IOException {
+        int read = readFully(channel, c.input, 0, (int) Math.min(SAMPLE_SIZE, fileSize));
+        Deflater trial = c.trial;
+        trial.reset();
+        trial.setInput(c.input, 0, read);
+        trial.finish();
+        int produced = 0;
+        while (!trial.finished() && produced < read) {
+            produced += trial.deflate(c.output, produced, c.output.length - produced);
+        }
+        return produced <= read * (1 - MIN_SAVING) ? ZipWriter.DEFLATED : ZipWriter.STORED;
+    }
+
+    /**
+     * Deflates one chunk as raw deflate data, or just reads it if the entry is stored. Chunks other
+     * than the last end with a sync flush, which leaves the stream byte-aligned and not final,
+     * so the next chunk can follow directly.
+     */
+    private static Compressed compressChunk(Compressor c, FileChannel channel, long start, int length, boolean last,
+                                            boolean stored) throws IOException {
+        if (stored) {
+            int read = readFully(channel, c.input, start, length);
+            c.crc.reset();
+            c.crc.update(c.input, 0, read);
+            return new Compressed(Arrays.copyOf(c.input, read), c.crc.getValue(), read);
+        }
+        int dictionaryLength = (int) Math.min(DICTIONARY_SIZE, start);
+        int read = readFully(channel, c.input, start - dictionaryLength, dictionaryLength + length);
+        int dataLength = Math.max(0, read - dictionaryLength);
+
+        Deflater deflater = c.deflater;
+        deflater.reset();
+        if (dictionaryLength > 0 && read >= dictionaryLength) {
+            deflater.setDictionary(c.input, 0, dictionaryLength);
+        }
+        deflater.setInput(c.input, dictionaryLength, dataLength);
+
+        int produced = 0;
+        if (last) {
+            deflater.finish();
+            while (!deflater.finished()) {
+                produced = deflateInto(c, produced, Deflater.NO_FLUSH);
+            }
+        } else {
+            // a flush that filled the output buffer may have more to write
+            do {
+                produced = deflateInto(c, produced, Deflater.SYNC_FLUSH);
+            } while (produced == c.output.length);
+        }
+
+        c.crc.reset();
+        c.crc.update(c.input, dictionaryLength, dataLength);
+        byte[] data = new byte[produced];
+        System.arraycopy(c.output, 0, data, 0, produced);
+        return new Compressed(data, c.crc.getValue(), dataLength);
+    }
+
+    // Deflates into the compressor's output buffer at offset, growing it when full; returns the new end offset
+    private static int deflateInto(Compressor c, int offset, int flush) {
+        if (offset == c.output.length) {
+            byte[] bigger = new byte[c.output.length * 2];
+            System.arraycopy(c.output, 0, bigger, 0, offset);
+            c.output = bigger;
+        }
+        return offset + c.deflater.deflate(c.output, offset, c.output.length - offset, flush);
+    }
+
+    private static int readFully(FileChannel channel, byte[] target, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(target, 0, length);
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position + buffer.position());
+            if (n == -1) break;
+        }
+        return buffer.position();
+    }
+
+    /**
+     * CRC-32 of two concatenated blocks from the CRC-32 of each (zlib's crc32_combine),
+     * so chunks can be checksummed on different threads.
+     */
+    static long crc32Combine(long crc1, long crc2, long length2) {
+        if (length2 <= 0) {
+            return crc1;
+        }
+        long[] even = new long[32];
+        long[] odd = new long[32];
+
+        // operator for one zero bit in odd
+        odd[0] = 0xEDB88320L;
+        long row = 1;
+        for (int n = 1; n < 32; n++) {
+            odd[n] = row;
+            row <<= 1;
+        }
+        gf2MatrixSquare(even, odd); // two zero bits
+        gf2MatrixSquare(odd, even); // four zero bits
+
+        // apply length2 zero bytes to crc1
+        do {
+            gf2MatrixSquare(even, odd);
+            if ((length2 & 1) != 0) {
+                crc1 = gf2MatrixTimes(even, crc1);
+            }
+            length2 >>= 1;
+            if (length2 == 0) {
+                break;
+            }
+            gf2MatrixSquare(odd, even);
+            if ((length2 & 1) != 0) {
+                crc1 = gf2MatrixTimes(odd, crc1);
+            }
+            length2 >>= 1;
+        } while (length2 != 0);
+
+        return crc1 ^ crc2;
+    }
+
+    private static long gf2MatrixTimes(long[] matrix, long vector) {
+        long sum = 0;
+        for (int i = 0; vector != 0; i++, vector >>>= 1) {
+            if ((vector & 1) != 0) {
+                sum ^= matrix[i];
+            }
+        }
+        return sum;
+    }
+
+    private static void gf2MatrixSquare(long[] square, long[] matrix) {
+        for (int n = 0; n < 32; n++) {
+            square[n] = gf2MatrixTimes(matrix, matrix[n]);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package CLD;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The central directory of an existing archive, read for 'zip -u'. Unlike ZipFile it exposes where
+ * each entry's compressed data starts, so an unchanged entry can be copied into a new archive
+ * as it is, without inflating and deflating it again. ZIP64 sizes and offsets are understood.
+ */
+final class ZipIndex implements Closeable {
+    private static final int END_SIZE = 22;
+    private static final int MAX_COMMENT = 0xFFFF;
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+    private static final int FLAG_ENCRYPTED = 0x0001;
+    static final long NO_UNIX_TIME = Long.MIN_VALUE;
+
+    private final FileChannel channel;
+    private final List<Record> records;
+
+    static final class Record {
+        final String name;
+        final int method;
+        final long crc;
+        final long compressedSize;
+        final long size;
+        final long dosTime;
+        final long unixSeconds; // from the extended timestamp field, NO_UNIX_TIME if the entry has none
+        final long offset;      // of the local header
+
+        Record(String name, int method, long crc, long compressedSize, long size, long dosTime, long unixSeconds,
+               long offset) {
+            this.name = name;
+            this.method = method;
+            this.crc = crc;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.dosTime = dosTime;
+            this.unixSeconds = unixSeconds;
+            this.offset = offset;
+        }
+
+        // Modification time in milliseconds, at the precision the archive kept
+        long lastModified() {
+            return unixSeconds != NO_UNIX_TIME ? unixSeconds * 1000 : javaTime(dosTime);
+        }
+
+        /**
+         * Whether the entry was made from a file of this size and modification time.
+         * The time is compared at the precision the archive kept: seconds, or the two seconds of a DOS time.
+         */
+        boolean matches(long fileSize, long fileLastModified) {
+            if (fileSize != size) return false;
+            if (unixSeconds != NO_UNIX_TIME) return unixSeconds == Math.floorDiv(fileLastModified, 1000);
+            return dosTime == ZipWriter.dosTime(fileLastModified);
+        }
+    }
+
+    private ZipIndex(FileChannel channel, List<Record> records) {
+        this.channel = channel;
+        this.records = records;
+    }
+
+    static ZipIndex open(File zipFile) throws IOException {
+        FileChannel channel = FileChannel.open(zipFile.toPath(), StandardOpenOption.READ);
+        try {
+            return new ZipIndex(channel, readCentralDirectory(channel, zipFile));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // The entries in central directory order
+    List<Record> records() {
+        return records;
+    }
+
+    FileChannel channel() {
+        return channel;
+    }
+
+    // Where the compressed data of the entry starts, found from the lengths in its local header
+    long dataOffset(Record record) throws IOException {
+        ByteBuffer local = read(channel, record.offset, 30);
+        if (local.getInt(0) != 0x04034b50) {
+            throw new IOException("Bad local header for " + record.name);
+        }
+        return record.offset + 30 + (local.getShort(26) & 0xFFFF) + (local.getShort(28) & 0xFFFF);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static List<Record> readCentralDirectory(FileChannel channel, File zipFile) throws IOException {
+        long fileSize = channel.size();
+        if (fileSize < END_SIZE) {
+            throw new IOException("Not a zip file: " + zipFile.getName());
+        }
+
+        // the end record is the last thing in the file, followed only by a comment
+        int tailLength = (int) Math.min(fileSize, END_SIZE + MAX_COMMENT);
+        long tailStart = fileSize - tailLength;
+        ByteBuffer tail = read(channel, tailStart, tailLength);
+        int end = -1;
+        for (int i = tailLength - END_SIZE; i >= 0; i--) {
+            if (tail.getInt(i) == 0x06054b50) {
+                end = i;
+                break;
+            }
+        }
+        if (end < 0) {
+            throw new IOException("Not a zip file: " + zipFile.getName());
+        }
+
+        long count = tail.getShort(end + 10) & 0xFFFF;
+        long centralSize = tail.getInt(end + 12) & ZIP64_MAGIC;
+        long centralStart = tail.getInt(end + 16) & ZIP64_MAGIC;
+
+        if (count == 0xFFFF || centralSize == ZIP64_MAGIC || centralStart == ZIP64_MAGIC) {
+            long locatorStart = tailStart + end - 20;
+            ByteBuffer locator = locatorStart >= 0 ? read(channel, locatorStart, 20) : null;
+            if (locator != null && locator.getInt(0) == 0x07064b50) {
+                ByteBuffer zip64End = read(channel, locator.getLong(8), 56);
+                if (zip64End.getInt(0) != 0x06064b50) {
+                    throw new IOException("Bad ZIP64 end record in " + zipFile.getName());
+                }
+                count = zip64End.getLong(32);
+                centralSize = zip64End.getLong(40);
+                centralStart = zip64End.getLong(48);
+            }
+        }
+        if (centralStart + centralSize > fileSize || centralSize > Integer.MAX_VALUE) {
+            throw new IOException("Bad central directory in " + zipFile.getName());
+        }
+
+        ByteBuffer central = read(channel, centralStart, (int) centralSize);
+        List<Record> records = new ArrayList<>((int) Math.min(count, 1 << 16));
+        int p = 0;
+        while (p + 46 <= central.limit() && central.getInt(p) == 0x02014b50) {
+            int flags = central.getShort(p + 8) & 0xFFFF;
+            int method = central.getShort(p + 10) & 0xFFFF;
+            long dosTime = central.getInt(p + 12) & ZIP64_MAGIC;
+            long crc = central.getInt(p + 16) & ZIP64_MAGIC;
+            long compressedSize = central.getInt(p + 20) & ZIP64_MAGIC;
+            long size = central.getInt(p + 24) & ZIP64_MAGIC;
+            int nameLength = central.getShort(p + 28) & 0xFFFF;
+            int extraLength = central.getShort(p + 30) & 0xFFFF;
+            int commentLength = central.getShort(p + 32) & 0xFFFF;
+            long offset = central.getInt(p + 42) & ZIP64_MAGIC;
+
+            byte[] nameBytes = new byte[nameLength];
+            central.get(p + 46, nameBytes);
+            String name = new String(nameBytes, StandardCharsets.UTF_8);
+            if ((flags & FLAG_ENCRYPTED) != 0) {
+                throw new IOException("Cannot update encrypted entry: " + name);
+            }
+
+            long unixSeconds = NO_UNIX_TIME;
+            int extra = p + 46 + nameLength;
+            int extraEnd = extra + extraLength;
+            while (extra + 4 <= extraEnd) {
+                int id = central.getShort(extra) & 0xFFFF;
+                int length = central.getShort(extra + 2) & 0xFFFF;
+                int data = extra + 4;
+                if (id == 0x0001) {
+                    // ZIP64 values are present only for the fields that overflowed, in this order
+                    if (size == ZIP64_MAGIC) {
+                        size = central.getLong(data);
+                        data += 8;
+                    }
+                    if (compressedSize == ZIP64_MAGIC) {
+                        compressedSize = central.getLong(data);
+                        data += 8;
+                    }
+                    if (offset == ZIP64_MAGIC) {
+                        offset = central.getLong(data);
+                    }
+                } else if (id == 0x5455 && length >= 5 && (central.get(data) & 1) != 0) {
+                    unixSeconds = central.getInt(data + 1); // signed, so times before 1970 survive
+                }
+                extra += 4 + length;
+            }
+
+            records.add(new Record(name, method, crc, compressedSize, size, dosTime, unixSeconds, offset));
+            p = extraEnd + commentLength;
+        }
+        if (records.size() != count) {
+            throw new IOException("Bad central directory in " + zipFile.getName());
+        }
+        return Collections.unmodifiableList(records);
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) == -1) {
+                throw new IOException("Unexpected end of zip file");
+            }
+        }
+        return buffer.clear();
+    }
+
+    // Inverse of ZipWriter.dosTime; 0 for a time that isn't a valid date
+    static long javaTime(long dosTime) {
+        try {
+            LocalDateTime t = LocalDateTime.of((int) ((dosTime >> 25) & 0x7F) + 1980, (int) ((dosTime >> 21) & 0x0F),
+                    (int) ((dosTime >> 16) & 0x1F), (int) ((dosTime >> 11) & 0x1F), (int) ((dosTime >> 5) & 0x3F),
+                    (int) ((dosTime << 1) & 0x3E));
+            return t.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (DateTimeException e) {
+            return 0;
+        }
+    }
+}
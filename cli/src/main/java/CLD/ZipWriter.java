@@ -0,0 +1,316 @@
+package CLD;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes a zip archive from entries whose data is already compressed (or stored).
+ * ZipOutputStream insists on compressing the data itself, which rules out deflating entries
+ * on other threads; this writer only lays out headers, so the caller decides where the bytes
+ * come from. Sizes and CRC are patched into the local header once the entry ends,
+ * and ZIP64 records are written when sizes, offsets or the entry count need them.
+ */
+final class ZipWriter implements Closeable {
+    static final int STORED = 0;
+    static final int DEFLATED = 8;
+
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+    // Entries at least this large get a ZIP64 local header, since their compressed size is not known yet
+    private static final long ZIP64_LOCAL_THRESHOLD = 0xF0000000L;
+    private static final int FLAG_UTF8 = 0x0800;
+
+    private final FileChannel channel;
+    private final List<CentralRecord> central = new ArrayList<>();
+    private final ByteBuffer header = ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+    private long position = 0;
+
+    // State of the entry currently being written
+    private CentralRecord current;
+    private long currentDataStart;
+    private boolean currentZip64Local;
+
+    private static final class CentralRecord {
+        byte[] name;
+        int method;
+        long dosTime;
+        long unixSeconds;
+        long crc;
+        long compressedSize;
+        long size;
+        long offset;
+        boolean directory;
+    }
+
+    ZipWriter(File zipFile) throws IOException {
+        channel = FileChannel.open(zipFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Writes the local header of a new entry. sizeHint is the expected uncompressed size;
+     * the real sizes and CRC are given to endEntry.
+     */
+    void beginEntry(String name, int method, long lastModified, long sizeHint) throws IOException {
+        checkNoCurrentEntry();
+        CentralRecord record = newRecord(name, method, lastModified);
+        currentZip64Local = sizeHint >= ZIP64_LOCAL_THRESHOLD;
+        writeLocalHeader(record, currentZip64Local); // crc and sizes are patched in endEntry
+
+        current = record;
+        currentDataStart = position;
+    }
+
+    /**
+     * Adds a complete entry whose compressed data is copied unchanged from source, starting at
+     * dataOffset; used to carry entries over from an existing archive without recompressing them.
+     */
+    void copyEntry(String name, int method, long lastModified, long crc, long compressedSize, long size,
+                   FileChannel source, long dataOffset) throws IOException {
+        checkNoCurrentEntry();
+        CentralRecord record = newRecord(name, method, lastModified);
+        record.crc = crc;
+        record.size = size;
+        record.compressedSize = compressedSize;
+        writeLocalHeader(record, size >= ZIP64_MAGIC || compressedSize >= ZIP64_MAGIC);
+
+        long copied = 0;
+        while (copied < compressedSize) {
+            long n = source.transferTo(dataOffset + copied, compressedSize - copied, channel);
+            if (n <= 0) {
+                throw new IOException("Unexpected end of data while copying " + name);
+            }
+            copied += n;
+        }
+        position += copied;
+        central.add(record);
+    }
+
+    private void checkNoCurrentEntry() {
+        if (current != null) {
+            throw new IllegalStateException("Previous zip entry not ended: " + new String(current.name, StandardCharsets.UTF_8));
+        }
+    }
+
+    private CentralRecord newRecord(String name, int method, long lastModified) {
+        CentralRecord record = new CentralRecord();
+        record.name = name.getBytes(StandardCharsets.UTF_8);
+        record.method = method;
+        record.dosTime = dosTime(lastModified);
+        record.unixSeconds = lastModified / 1000;
+        record.offset = position;
+        record.directory = name.endsWith("/");
+        return record;
+    }
+
+    private void writeLocalHeader(CentralRecord record, boolean zip64) throws IOException {
+        header.clear();
+        header.putInt(0x04034b50);
+        header.putShort((short) (zip64 ? 45 : 20));
+        header.putShort((short) FLAG_UTF8);
+        header.putShort((short) record.method);
+        header.putInt((int) record.dosTime);
+        header.putInt((int) record.crc);
+        header.putInt((int) (zip64 ? ZIP64_MAGIC : record.compressedSize));
+        header.putInt((int) (zip64 ? ZIP64_MAGIC : record.size));
+        header.putShort((short) record.name.length);
+        header.putShort((short) (9 + (zip64 ? 20 : 0)));
+        writeHeader();
+        write(record.name);
+        putTimestampExtra(record.unixSeconds);
+        if (zip64) {
+            header.putShort((short) 0x0001);
+            header.putShort((short) 16);
+            header.putLong(record.size);
+            header.putLong(record.compressedSize);
+        }
+        writeHeader();
+    }
+
+    // Appends entry data exactly as it should appear in the archive
+    void write(byte[] data, int off, int len) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(data, off, len);
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer);
+        }
+    }
+
+    void write(byte[] data) throws IOException {
+        write(data, 0, data.length);
+    }
+
+    /**
+     * Finishes the current entry: the compressed size is everything written since beginEntry.
+     */
+    void endEntry(long crc, long size) throws IOException {
+        CentralRecord record = current;
+        record.crc = crc;
+        record.size = size;
+        record.compressedSize = position - currentDataStart;
+
+        boolean needsZip64 = record.size >= ZIP64_MAGIC || record.compressedSize >= ZIP64_MAGIC;
+        if (needsZip64 && !currentZip64Local) {
+            throw new IOException("Entry grew past 4 GB while being written: "
+                    + new String(record.name, StandardCharsets.UTF_8));
+        }
+
+        header.clear();
+        header.putInt((int) crc);
+        if (currentZip64Local) {
+            patch(record.offset + 14, 4);
+            header.clear();
+            header.putLong(record.size);
+            header.putLong(record.compressedSize);
+            patch(record.offset + 30 + record.name.length + 9 + 4, 16);
+        } else {
+            header.putInt((int) record.compressedSize);
+            header.putInt((int) record.size);
+            patch(record.offset + 14, 12);
+        }
+
+        central.add(record);
+        current = null;
+    }
+
+    void addDirectory(String name, long lastModified) throws IOException {
+        beginEntry(name.endsWith("/") ? name : name + "/", STORED, lastModified, 0);
+        endEntry(0, 0);
+    }
+
+    /**
+     * Writes the central directory and end records, then closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (current != null) {
+                throw new IOException("Zip entry not ended: " + new String(current.name, StandardCharsets.UTF_8));
+            }
+            long centralStart = position;
+            for (CentralRecord record : central) {
+                writeCentralRecord(record);
+            }
+            long centralSize = position - centralStart;
+            writeEnd(centralStart, centralSize);
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void writeCentralRecord(CentralRecord record) throws IOException {
+        boolean sizeOverflow = record.size >= ZIP64_MAGIC;
+        boolean compressedOverflow = record.compressedSize >= ZIP64_MAGIC;
+        boolean offsetOverflow = record.offset >= ZIP64_MAGIC;
+        int zip64Length = (sizeOverflow ? 8 : 0) + (compressedOverflow ? 8 : 0) + (offsetOverflow ? 8 : 0);
+        boolean zip64 = zip64Length > 0;
+
+        header.clear();
+        header.putInt(0x02014b50);
+        header.putShort((short) (zip64 ? 45 : 20)); // made by: MS-DOS attributes
+        header.putShort((short) (zip64 ? 45 : 20));
+        header.putShort((short) FLAG_UTF8);
+        header.putShort((short) record.method);
+        header.putInt((int) record.dosTime);
+        header.putInt((int) record.crc);
+        header.putInt((int) (compressedOverflow ? ZIP64_MAGIC : record.compressedSize));
+        header.putInt((int) (sizeOverflow ? ZIP64_MAGIC : record.size));
+        header.putShort((short) record.name.length);
+        header.putShort((short) (9 + (zip64 ? 4 + zip64Length : 0)));
+        header.putShort((short) 0); // comment length
+        header.putShort((short) 0); // disk number
+        header.putShort((short) 0); // internal attributes
+        header.putInt(record.directory ? 0x10 : 0);
+        header.putInt((int) (offsetOverflow ? ZIP64_MAGIC : record.offset));
+        writeHeader();
+        write(record.name);
+        putTimestampExtra(record.unixSeconds);
+        if (zip64) {
+            header.putShort((short) 0x0001);
+            header.putShort((short) zip64Length);
+            if (sizeOverflow) header.putLong(record.size);
+            if (compressedOverflow) header.putLong(record.compressedSize);
+            if (offsetOverflow) header.putLong(record.offset);
+        }
+        writeHeader();
+    }
+
+    private void writeEnd(long centralStart, long centralSize) throws IOException {
+        long count = central.size();
+        boolean zip64 = count >= 0xFFFF || centralStart >= ZIP64_MAGIC || centralSize >= ZIP64_MAGIC;
+
+        header.clear();
+        if (zip64) {
+            long zip64EndStart = position;
+            header.putInt(0x06064b50);
+            header.putLong(44);
+            header.putShort((short) 45);
+            header.putShort((short) 45);
+            header.putInt(0);
+            header.putInt(0);
+            header.putLong(count);
+            header.putLong(count);
+            header.putLong(centralSize);
+            header.putLong(centralStart);
+
+            header.putInt(0x07064b50);
+            header.putInt(0);
+            header.putLong(zip64EndStart);
+            header.putInt(1);
+        }
+        header.putInt(0x06054b50);
+        header.putShort((short) 0);
+        header.putShort((short) 0);
+        header.putShort((short) (zip64 ? 0xFFFF : count));
+        header.putShort((short) (zip64 ? 0xFFFF : count));
+        header.putInt((int) (zip64 ? ZIP64_MAGIC : centralSize));
+        header.putInt((int) (zip64 ? ZIP64_MAGIC : centralStart));
+        header.putShort((short) 0);
+        writeHeader();
+    }
+
+    // Extended timestamp extra field (0x5455): keeps the modification time at 1-second precision
+    private void putTimestampExtra(long unixSeconds) {
+        header.putShort((short) 0x5455);
+        header.putShort((short) 5);
+        header.put((byte) 1);
+        header.putInt((int) unixSeconds);
+    }
+
+    private void writeHeader() throws IOException {
+        header.flip();
+        while (header.hasRemaining()) {
+            position += channel.write(header);
+        }
+        header.clear();
+    }
+
+    // Overwrites already-written header bytes with the first length bytes of the header buffer
+    private void patch(long at, int length) throws IOException {
+        header.flip();
+        header.limit(length);
+        long p = at;
+        while (header.hasRemaining()) {
+            p += channel.write(header, p);
+        }
+        header.clear();
+    }
+
+    static long dosTime(long millis) {
+        LocalDateTime t = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+        if (t.getYear() < 1980) {
+            return (1 << 21) | (1 << 16);
+        }
+        return ((long) (t.getYear() - 1980) << 25) | ((long) t.getMonthValue() << 21) | ((long) t.getDayOfMonth() << 16)
+                | ((long) t.getHour() << 11) | ((long) t.getMinute() << 5) | (t.getSecond() >> 1);
+    }
+}
@@ -0,0 +1,35 @@
+package CLD;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class ClientTest {
+    // The words the server's parser gets back from the line the client sends
+    private static String[] roundTrip(String... args) {
+        Parser parser = new Parser();
+        assertTrue(parser.parse(Client.commandLine(args)), parser.getError());
+        return parser.getStages().get(0);
+    }
+
+    @Test
+    void plainWordsAreSentAsIs() {
+        assertEquals("ls -l dir", Client.commandLine(new String[]{"ls", "-l", "dir"}));
+    }
+
+    @Test
+    void wordsKeepTheirSpacesAndQuotes() {
+        String[] args = {"cat", "o 1.txt", "it's", "say \"hi\"", "", "tab\there"};
+        assertArrayEquals(args, roundTrip(args));
+    }
+
+    @Test
+    void operatorsGivenAsArgumentsStillWork() {
+        Parser parser = new Parser();
+        assertTrue(parser.parse(Client.commandLine(new String[]{"cat", "a b.txt", "|", "wc", "-l"})));
+        assertEquals(2, parser.getStages().size());
+        assertArrayEquals(new String[]{"cat", "a b.txt"}, parser.getStages().get(0));
+    }
+}
@@ -0,0 +1,51 @@
+package CLD;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+
+class CommandRegistryTest {
+    private final CommandRegistry registry = new CommandRegistry();
+    private final PrintStream out = new PrintStream(new ByteArrayOutputStream());
+
+    private ExecutionContext context() {
+        return new ExecutionContext(null, out, out, Path.of("."));
+    }
+
+    @Test
+    void throwingCommandFails() {
+        registry.register("boom", (io, args) -> {
+            throw new IllegalStateException("boom");
+        });
+        CommandRegistry.Registration boom = registry.lookup("boom");
+        ExecutionContext io = context();
+
+        assertThrows(IllegalStateException.class, () -> registry.execute(boom, io, new String[0]));
+        assertEquals(1, io.status());
+        assertEquals(1, boom.stats.calls());
+        assertEquals(1, boom.stats.errors());
+    }
+
+    @Test
+    void statusDecidesOutcome() throws Exception {
+        registry.register("ok", (io, args) -> { });
+        registry.register("fails", (io, args) -> io.fail());
+        CommandRegistry.Registration ok = registry.lookup("ok");
+        CommandRegistry.Registration fails = registry.lookup("fails");
+
+        ExecutionContext io = context();
+        registry.execute(ok, io, new String[0]);
+        assertEquals(0, io.status());
+        assertEquals(0, ok.stats.errors());
+
+        io = context();
+        registry.execute(fails, io, new String[0]);
+        assertEquals(1, io.status());
+        assertEquals(1, fails.stats.errors());
+    }
+}
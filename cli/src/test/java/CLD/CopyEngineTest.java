@@ -0,0 +1,135 @@
+package CLD;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CopyEngineTest {
+    private static final FileTime TIME = FileTime.fromMillis(1_600_000_000_000L);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void copiesContentTimesAndPermissions() throws IOException {
+        byte[] data = new byte[3 * 1024 * 1024 + 17];
+        new Random(3).nextBytes(data);
+        Path source = Files.write(dir.resolve("src.bin"), data);
+        Files.setPosixFilePermissions(source, PosixFilePermissions.fromString("rwxr-x---"));
+        Files.setLastModifiedTime(source, TIME);
+        Path target = dir.resolve("dst.bin");
+
+        assertEquals(data.length, CopyEngine.copyFile(source, target));
+        assertArrayEquals(data, Files.readAllBytes(target));
+        assertEquals(TIME, Files.getLastModifiedTime(target));
+        assertEquals("rwxr-x---", PosixFilePermissions.toString(Files.getPosixFilePermissions(target)));
+    }
+
+    @Test
+    void replacesLongerTargetAndCopiesEmptyFile() throws IOException {
+        Path source = Files.writeString(dir.resolve("short"), "new");
+        Path target = Files.writeString(dir.resolve("long"), "old content that is longer");
+
+        assertEquals(3, CopyEngine.copyFile(source, target));
+        assertEquals("new", Files.readString(target));
+
+        Path empty = Files.createFile(dir.resolve("empty"));
+        assertEquals(0, CopyEngine.copyFile(empty, target));
+        assertEquals(0, Files.size(target));
+    }
+
+    @Test
+    void fileReportingSizeZeroIsCopiedBuffered() throws IOException {
+        // procfs reports a size of 0 for files that do have content
+        Path status = Path.of("/proc/self/status");
+        assumeTrue(Files.isReadable(status) && Files.size(status) == 0, "no procfs");
+        Path target = dir.resolve("status");
+
+        long copied = CopyEngine.copyFile(status, target);
+        assertEquals(Files.size(target), copied);
+        assertFalse(Files.readString(target).isEmpty());
+    }
+
+    @Test
+    void copiesTreeWithItsDirectoryTimes() throws IOException {
+        Path source = Files.createDirectories(dir.resolve("src/a/b"));
+        Files.writeString(source.resolve("deep.txt"), "deep");
+        for (int i = 0; i < 100; i++) {
+            Files.writeString(dir.resolve("src/f" + i), "x".repeat(i));
+        }
+        Files.setLastModifiedTime(dir.resolve("src/a"), TIME);
+
+        LongAdder copied = new LongAdder();
+        List<String> errors = CopyEngine.copyTree(dir.resolve("src").toFile(), dir.resolve("dst").toFile(), 2, copied);
+
+        assertEquals(List.of(), errors);
+        assertEquals(4 + 99 * 100 / 2, copied.sum());
+        assertEquals("deep", Files.readString(dir.resolve("dst/a/b/deep.txt")));
+        assertEquals("x".repeat(99), Files.readString(dir.resolve("dst/f99")));
+        // set after its children were copied into it
+        assertEquals(TIME, Files.getLastModifiedTime(dir.resolve("dst/a")));
+    }
+
+    @Test
+    void errorsAreCollectedAndTheRestIsCopied() throws IOException {
+        Files.createDirectories(dir.resolve("src/blocked"));
+        Files.writeString(dir.resolve("src/blocked/x"), "x");
+        Files.writeString(dir.resolve("src/clash"), "c");
+        Files.writeString(dir.resolve("src/ok"), "ok");
+        // a file where a directory goes, and a non-empty directory where a file goes
+        Files.createDirectories(dir.resolve("dst/clash/inside"));
+        Files.writeString(dir.resolve("dst/blocked"), "file");
+
+        LongAdder copied = new LongAdder();
+        List<String> errors = new ArrayList<>(
+                CopyEngine.copyTree(dir.resolve("src").toFile(), dir.resolve("dst").toFile(), 1, copied));
+        errors.sort(null);
+
+        assertEquals(2, errors.size(), errors.toString());
+        assertTrue(errors.get(0).startsWith(dir.resolve("dst/blocked") + ": "), errors.get(0));
+        assertTrue(errors.get(1).startsWith(dir.resolve("src/clash") + ": "), errors.get(1));
+        assertEquals("ok", Files.readString(dir.resolve("dst/ok")));
+        assertEquals(2, copied.sum());
+    }
+
+    @Test
+    void cpReportsEveryErrorAndFails() throws IOException {
+        Files.createDirectories(dir.resolve("src/blocked"));
+        Files.writeString(dir.resolve("src/clash"), "c");
+        Files.createDirectories(dir.resolve("dst/src/clash/inside"));
+        Files.writeString(dir.resolve("dst/src/blocked"), "file");
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(output, true);
+        DirectoryCache cache = new DirectoryCache();
+        try {
+            Terminal terminal = new Terminal(cache, 1, out, out);
+            assertEquals(0, terminal.runLine("cd " + dir));
+            assertEquals(1, terminal.runLine("cp -r -j 2 src dst"));
+            assertEquals(1, terminal.runLine("cp -r -j 0 src dst"));
+        } finally {
+            cache.close();
+        }
+        String printed = output.toString(StandardCharsets.UTF_8);
+        assertTrue(printed.contains("cp: 2 error(s) while copying src:"), printed);
+        assertTrue(printed.contains("cp: invalid number of parallel copies: 0"), printed);
+    }
+}
@@ -0,0 +1,73 @@
+package CLD;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CountEngineTest {
+    private static final int BOUNDARY = (int) CountEngine.CHUNK_SIZE;
+
+    @TempDir
+    Path dir;
+
+    // Counts the file both memory-mapped in chunks and as a stream, and checks they agree
+    private CountEngine.Counts count(byte[] content) throws IOException {
+        Path file = Files.write(dir.resolve("f.txt"), content);
+        CountEngine.Counts mapped = CountEngine.count(file);
+        CountEngine.Counts streamed = CountEngine.count(new ByteArrayInputStream(content));
+        assertEquals(streamed.lines, mapped.lines);
+        assertEquals(streamed.words, mapped.words);
+        assertEquals(streamed.chars, mapped.chars);
+        assertEquals(content.length, mapped.bytes);
+        return mapped;
+    }
+
+    // size bytes of 'x', with the given text written over them at position
+    private static byte[] content(int size, int position, String text) {
+        byte[] content = new byte[size];
+        Arrays.fill(content, (byte) 'x');
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(bytes, 0, content, position, bytes.length);
+        content[size - 1] = '\n';
+        return content;
+    }
+
+    @Test
+    void wordAcrossChunkBoundaryCountsOnce() throws IOException {
+        CountEngine.Counts counts = count(content(BOUNDARY + 100, BOUNDARY - 50, " split-here "));
+        assertEquals(1, counts.lines);
+        assertEquals(3, counts.words);
+        assertEquals(BOUNDARY + 100, counts.chars);
+    }
+
+    @Test
+    void spaceAtChunkBoundary() throws IOException {
+        assertEquals(2, count(content(BOUNDARY + 100, BOUNDARY, " ")).words);
+        assertEquals(2, count(content(BOUNDARY + 100, BOUNDARY - 1, " ")).words);
+        assertEquals(2, count(content(BOUNDARY + 100, BOUNDARY - 1, "\n")).lines);
+    }
+
+    @Test
+    void characterAcrossChunkBoundary() throws IOException {
+        // 'é' is two bytes, the first at the end of the first chunk
+        CountEngine.Counts counts = count(content(BOUNDARY + 100, BOUNDARY - 1, "é"));
+        assertEquals(BOUNDARY + 99, counts.chars);
+        assertEquals(1, counts.words);
+    }
+
+    @Test
+    void smallInput() throws IOException {
+        CountEngine.Counts counts = count("one two\n  three\n\nfour".getBytes(StandardCharsets.UTF_8));
+        assertEquals(3, counts.lines);
+        assertEquals(4, counts.words);
+        assertEquals(21, counts.chars);
+    }
+}
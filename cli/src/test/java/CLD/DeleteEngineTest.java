@@ -0,0 +1,85 @@
+package CLD;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DeleteEngineTest {
+    @TempDir
+    Path dir;
+
+    private final LongAdder deleted = new LongAdder();
+
+    @Test
+    void deletesTreeBottomUp() throws IOException {
+        Path root = dir.resolve("root");
+        Path deep = Files.createDirectories(root.resolve("a/b/c/d"));
+        Files.writeString(deep.resolve("leaf"), "x");
+        Path wide = Files.createDirectories(root.resolve("wide"));
+        // more entries than one batch, so the directory is emptied by several tasks
+        for (int i = 0; i < 600; i++) {
+            Files.createFile(wide.resolve("f" + i));
+        }
+        Files.createSymbolicLink(root.resolve("link"), dir);
+
+        assertEquals(List.of(), DeleteEngine.deleteTree(root, false, deleted));
+        assertFalse(Files.exists(root));
+        assertEquals(1 + 4 + 1 + 1 + 600 + 1, deleted.sum());
+        // the link was removed, not followed
+        assertTrue(Files.isDirectory(dir));
+    }
+
+    @Test
+    void missingPathIsAnErrorUnlessForced() {
+        Path missing = dir.resolve("missing");
+        assertEquals(List.of(missing + ": No such file or directory"), DeleteEngine.deleteTree(missing, false, deleted));
+        assertEquals(List.of(), DeleteEngine.deleteTree(missing, true, deleted));
+        assertEquals(0, deleted.sum());
+    }
+
+    @Test
+    void failureIsReportedPerPathAndKeepsItsParents() throws IOException {
+        Path root = dir.resolve("root");
+        Path locked = Files.createDirectories(root.resolve("locked"));
+        Files.createFile(locked.resolve("kept"));
+        Files.createFile(root.resolve("gone"));
+        Files.setPosixFilePermissions(locked, PosixFilePermissions.fromString("r-xr-xr-x"));
+        try {
+            assumeFalse(Files.isWritable(locked), "permissions are not enforced for this user");
+
+            List<String> errors = DeleteEngine.deleteTree(root, false, deleted);
+            assertEquals(List.of(locked.resolve("kept") + ": Permission denied"), errors);
+            assertTrue(Files.exists(locked.resolve("kept")));
+            assertFalse(Files.exists(root.resolve("gone")));
+        } finally {
+            Files.setPosixFilePermissions(locked, PosixFilePermissions.fromString("rwxr-xr-x"));
+        }
+    }
+
+    @Test
+    void refusals() {
+        Path cwd = dir.resolve("work/sub");
+        assertEquals("refusing to remove the root directory", DeleteEngine.refusal("/", Path.of("/"), cwd));
+        assertEquals("refusing to remove the root directory", DeleteEngine.refusal("//", Path.of("/"), cwd));
+        assertEquals("refusing to remove '.' or '..' directory", DeleteEngine.refusal(".", cwd.resolve("."), cwd));
+        assertEquals("refusing to remove '.' or '..' directory", DeleteEngine.refusal("x/..", cwd.resolve("x/.."), cwd));
+        assertEquals("refusing to remove '.' or '..' directory", DeleteEngine.refusal("x/./", cwd.resolve("x/."), cwd));
+        assertEquals("refusing to remove the current directory or one above it",
+                DeleteEngine.refusal(dir.resolve("work").toString(), dir.resolve("work"), cwd));
+        assertNull(DeleteEngine.refusal("x", cwd.resolve("x"), cwd));
+        assertNull(DeleteEngine.refusal("..x", cwd.resolve("..x"), cwd));
+        assertNull(DeleteEngine.refusal(dir.resolve("work2").toString(), dir.resolve("work2"), cwd));
+    }
+}
@@ -0,0 +1,68 @@
+package CLD;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DirectoryCacheTest {
+    private final DirectoryCache cache = new DirectoryCache();
+
+    @TempDir
+    Path dir;
+
+    @AfterEach
+    void close() {
+        cache.close();
+    }
+
+    @Test
+    void listingIsRevalidatedAgainstModificationTime() throws IOException {
+        Files.createFile(dir.resolve("a"));
+        assertArrayEquals(new String[]{"a"}, cache.list(dir));
+
+        // changed behind the cache's back, before any watch event can have arrived
+        Files.createFile(dir.resolve("b"));
+        Files.setLastModifiedTime(dir, FileTime.fromMillis(Files.getLastModifiedTime(dir).toMillis() + 10_000));
+        assertArrayEquals(new String[]{"a", "b"}, cache.list(dir));
+    }
+
+    @Test
+    void invalidateDropsListing() throws IOException {
+        assertArrayEquals(new String[0], cache.list(dir));
+        Files.createFile(dir.resolve("c"));
+        cache.invalidate(dir.resolve("c"));
+        assertArrayEquals(new String[]{"c"}, cache.list(dir));
+    }
+
+    @Test
+    void statIsRevalidatedAgainstParentModificationTime() throws IOException {
+        Path child = dir.resolve("child");
+        assertFalse(cache.stat(child).exists);
+
+        // created behind the cache's back, before any watch event can have arrived
+        Files.createDirectory(child);
+        Files.setLastModifiedTime(dir, FileTime.fromMillis(Files.getLastModifiedTime(dir).toMillis() + 10_000));
+        assertTrue(cache.stat(child).exists);
+        assertTrue(cache.stat(child).directory);
+    }
+
+    @Test
+    void statStaysValidatedAfterClose() throws IOException {
+        Path file = Files.createFile(dir.resolve("f"));
+        assertTrue(cache.stat(file).exists);
+        cache.close();
+
+        Files.delete(file);
+        Files.setLastModifiedTime(dir, FileTime.fromMillis(Files.getLastModifiedTime(dir).toMillis() + 10_000));
+        assertFalse(cache.stat(file).exists);
+    }
+}
@@ -0,0 +1,64 @@
+package CLD;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FindEngineTest {
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    void tree() throws IOException {
+        Files.createDirectories(dir.resolve("src/sub"));
+        Files.writeString(dir.resolve("src/a.java"), "x".repeat(2000));
+        Files.writeString(dir.resolve("src/sub/b.java"), "x");
+        Files.writeString(dir.resolve("src/sub/notes.txt"), "x".repeat(10));
+    }
+
+    // Names found below src, sorted since the walk goes in directory order
+    private List<String> find(FindEngine find) throws IOException {
+        List<String> names = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        find.walk(dir.resolve("src"), "src", (path, name) -> names.add(name), errors::add);
+        assertEquals(List.of(), errors);
+        names.sort(null);
+        return names;
+    }
+
+    @Test
+    void everything() throws IOException {
+        assertEquals(List.of("src", "src/a.java", "src/sub", "src/sub/b.java", "src/sub/notes.txt"), find(new FindEngine()));
+    }
+
+    @Test
+    void nameAndType() throws IOException {
+        assertEquals(List.of("src/a.java", "src/sub/b.java"), find(new FindEngine().name("*.java")));
+        assertEquals(List.of("src", "src/sub"), find(new FindEngine().type('d')));
+    }
+
+    @Test
+    void size() throws IOException {
+        assertEquals(List.of("src/a.java"), find(new FindEngine().type('f').size("+1k")));
+        assertEquals(List.of("src/sub/b.java"), find(new FindEngine().type('f').size("-10c")));
+        assertEquals(List.of("src/sub/notes.txt"), find(new FindEngine().size("10")));
+    }
+
+    @Test
+    void filesForGrep() throws IOException {
+        List<String> names = new ArrayList<>();
+        for (GrepEngine.Target target : FindEngine.files(dir.resolve("src"), "src", error -> { })) {
+            names.add(target.name);
+        }
+        names.sort(null);
+        assertEquals(List.of("src/a.java", "src/sub/b.java", "src/sub/notes.txt"), names);
+    }
+}
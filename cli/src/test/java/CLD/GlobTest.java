@@ -0,0 +1,51 @@
+package CLD;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+
+class GlobTest {
+    private static boolean matches(String glob, String name) {
+        return Glob.compile(glob).matcher(name).matches();
+    }
+
+    @Test
+    void wildcardsAndClasses() {
+        assertTrue(matches("*.txt", "notes.txt"));
+        assertFalse(matches("*.txt", "notes.txt.bak"));
+        assertTrue(matches("file?.log", "file1.log"));
+        assertTrue(matches("[a-c]x", "bx"));
+        assertFalse(matches("[!a-c]x", "bx"));
+        assertTrue(matches("[!a-c]x", "dx"));
+    }
+
+    @Test
+    void regexCharactersAreLiteral() {
+        assertTrue(matches("a+b(1).txt", "a+b(1).txt"));
+        assertFalse(matches("a.b", "axb"));
+    }
+
+    @Test
+    void bracketsInsideClass() {
+        // a ']' right after the opening bracket belongs to the class
+        assertTrue(matches("[]a]", "]"));
+        assertTrue(matches("[]a]", "a"));
+        assertFalse(matches("[]a]", "b"));
+        assertTrue(matches("[[]", "["));
+        assertTrue(matches("x[&^]", "x&"));
+        assertTrue(matches("x[&^]", "x^"));
+    }
+
+    @Test
+    void malformedClassesMatchLiterally() {
+        assertTrue(matches("[abc", "[abc"));
+        assertTrue(matches("a[", "a["));
+        assertTrue(matches("[!]", "[!]"));
+        assertTrue(matches("[z-a]", "[z-a]"));
+        Pattern pattern = Glob.compile("*[");
+        assertTrue(pattern.matcher("x[").matches());
+    }
+}
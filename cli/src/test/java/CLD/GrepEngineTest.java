@@ -0,0 +1,154 @@
+package CLD;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class GrepEngineTest {
+    @TempDir
+    Path dir;
+
+    private final List<String> errors = new ArrayList<>();
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final PrintStream out = new PrintStream(bytes, true);
+
+    private GrepEngine.Target file(String name, String content) throws IOException {
+        return new GrepEngine.Target(Files.writeString(dir.resolve(name), content), name);
+    }
+
+    private String output() {
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+
+    private static GrepEngine grep(String pattern, GrepEngine.Mode mode, boolean withFileNames) {
+        return new GrepEngine(pattern, false, mode, withFileNames, false);
+    }
+
+    @Test
+    void matchesAcrossRegionBoundaries() throws IOException {
+        // three regions; the needle also sits at the very start and end of the file and around each cut
+        StringBuilder content = new StringBuilder("needle first\n");
+        StringBuilder expected = new StringBuilder("needle first\n");
+        long boundary = GrepEngine.REGION_SIZE;
+        for (int i = 0; content.length() < 2.5 * GrepEngine.REGION_SIZE; i++) {
+            String line;
+            if (content.length() > boundary - 40) {
+                line = "around the cut " + i + " a needle here";
+                boundary += GrepEngine.REGION_SIZE;
+            } else {
+                line = i % 1000 == 0 ? "needle " + i : "haystack line number " + i;
+            }
+            content.append(line).append('\n');
+            if (line.contains("needle")) expected.append(line).append('\n');
+        }
+        content.append("ends with needle");
+        expected.append("ends with needle\n");
+        GrepEngine.Target target = file("big.log", content.toString());
+
+        assertTrue(grep("needle", GrepEngine.Mode.LINES, false).search(List.of(target), out, errors));
+        assertEquals(expected.toString(), output());
+
+        bytes.reset();
+        grep("needle", GrepEngine.Mode.COUNT, false).search(List.of(target), out, errors);
+        assertEquals(expected.toString().split("\n").length + "\n", output());
+        assertTrue(errors.isEmpty(), errors.toString());
+    }
+
+    @Test
+    void countAndFileNames() throws IOException {
+        List<GrepEngine.Target> targets = List.of(file("a.txt", "x\ny\nx\n"), file("b.txt", "y\n"), file("c.txt", "xx"));
+
+        assertTrue(grep("x", GrepEngine.Mode.COUNT, true).search(targets, out, errors));
+        assertEquals("a.txt:2\nb.txt:0\nc.txt:1\n", output());
+
+        bytes.reset();
+        assertTrue(grep("x", GrepEngine.Mode.FILES, true).search(targets, out, errors));
+        assertEquals("a.txt\nc.txt\n", output());
+    }
+
+    @Test
+    void outputFollowsTheOrderFilesWereGiven() throws IOException {
+        List<GrepEngine.Target> targets = new ArrayList<>();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            // later files are smaller, so they tend to finish first
+            targets.add(file("f" + i, "skip\n".repeat(50 - i) + "match " + i + "\n"));
+            expected.append("f").append(i).append(":match ").append(i).append('\n');
+        }
+
+        assertTrue(grep("match", GrepEngine.Mode.LINES, true).search(targets, out, errors));
+        assertEquals(expected.toString(), output());
+    }
+
+    @Test
+    void binaryFilesAreSkippedUnlessAsked() throws IOException {
+        List<GrepEngine.Target> targets = List.of(file("bin", "match\0\nmatch\n"), file("text", "match\n"));
+
+        assertTrue(grep("match", GrepEngine.Mode.LINES, true).search(targets, out, errors));
+        assertEquals("text:match\n", output());
+
+        bytes.reset();
+        new GrepEngine("match", false, GrepEngine.Mode.COUNT, true, true).search(targets, out, errors);
+        assertEquals("bin:2\ntext:1\n", output());
+    }
+
+    @Test
+    void regularExpression() throws IOException {
+        GrepEngine grep = new GrepEngine("^err(or)? [0-9]+$", true, GrepEngine.Mode.LINES, false, false);
+        assertTrue(grep.search(List.of(file("log", "error 12\nerr 3\nerror x\nwarn 4\n")), out, errors));
+        assertEquals("error 12\nerr 3\n", output());
+    }
+
+    @Test
+    void noMatchAndUnreadableFiles() throws IOException {
+        List<GrepEngine.Target> targets = List.of(file("a", "abc\n"), new GrepEngine.Target(dir.resolve("missing"), "missing"));
+        assertFalse(grep("zzz", GrepEngine.Mode.LINES, true).search(targets, out, errors));
+        assertEquals("", output());
+        assertEquals(List.of("missing: No such file or directory"), errors);
+    }
+
+    @Test
+    void stream() throws IOException {
+        GrepEngine grep = grep("b", GrepEngine.Mode.LINES, false);
+        assertTrue(grep.search(new ByteArrayInputStream("ab\ncd\nbb".getBytes(StandardCharsets.UTF_8)), "(standard input)", out));
+        assertEquals("ab\nbb\n", output());
+    }
+
+    @Test
+    void stopsOnceOutputFails() throws IOException {
+        List<GrepEngine.Target> targets = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            targets.add(file("f" + i, "match\n"));
+        }
+        // like a pipe whose reader has gone away after the first write
+        int[] writes = {0};
+        PrintStream closed = new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                if (writes[0]++ > 0) throw new IOException("Pipe closed");
+            }
+        }, true);
+
+        grep("match", GrepEngine.Mode.LINES, false).search(targets, closed, errors);
+        assertTrue(writes[0] <= 4, "kept writing after the pipe closed: " + writes[0]);
+    }
+}
@@ -0,0 +1,96 @@
+package CLD;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class HeadTailEngineTest {
+    @TempDir
+    Path dir;
+
+    // tail of a file, read backwards from its end
+    private String tailFile(String content, long count, boolean lines) throws IOException {
+        Path file = Files.writeString(dir.resolve("f.txt"), content);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (FileChannel channel = FileChannel.open(file); PrintStream out = new PrintStream(bytes)) {
+            long size = channel.size();
+            long start = lines ? HeadTailEngine.lastLinesStart(channel, size, count) : Math.max(0, size - count);
+            HeadTailEngine.copy(channel, start, size, out);
+        }
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+
+    // tail of the same content read from a pipe
+    private static String tailStream(String content, long count, boolean lines) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (PrintStream out = new PrintStream(bytes)) {
+            HeadTailEngine.tail(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), count, lines, out);
+        }
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+
+    private void assertTail(String expected, String content, long count, boolean lines) throws IOException {
+        assertEquals(expected, tailFile(content, count, lines));
+        assertEquals(expected, tailStream(content, count, lines));
+    }
+
+    @Test
+    void lastLinesWithFinalNewline() throws IOException {
+        assertTail("b\nc\n", "a\nb\nc\n", 2, true);
+        assertTail("a\nb\nc\n", "a\nb\nc\n", 3, true);
+        assertTail("a\nb\nc\n", "a\nb\nc\n", 10, true);
+        assertTail("", "a\nb\nc\n", 0, true);
+    }
+
+    @Test
+    void lastLinesWithoutFinalNewline() throws IOException {
+        assertTail("b\nc", "a\nb\nc", 2, true);
+        assertTail("c", "a\nb\nc", 1, true);
+        assertTail("a\nb\nc", "a\nb\nc", 3, true);
+        assertTail("", "", 5, true);
+    }
+
+    @Test
+    void emptyLinesCount() throws IOException {
+        assertTail("\n\n", "a\n\n\n", 2, true);
+        assertTail("\n", "\n", 1, true);
+    }
+
+    @Test
+    void linesAcrossBlocks() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 20_000; i++) {
+            content.append("line ").append(i).append('\n');
+        }
+        StringBuilder expected = new StringBuilder();
+        for (int i = 20_000 - 15_000; i < 20_000; i++) {
+            expected.append("line ").append(i).append('\n');
+        }
+        assertTail(expected.toString(), content.toString(), 15_000, true);
+    }
+
+    @Test
+    void lastBytes() throws IOException {
+        assertTail("c\n", "a\nb\nc\n", 2, false);
+        assertTail("a\nb", "a\nb", 10, false);
+    }
+
+    @Test
+    void headStopsAfterCount() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (PrintStream out = new PrintStream(bytes)) {
+            HeadTailEngine.head(new ByteArrayInputStream("a\nb\nc".getBytes(StandardCharsets.UTF_8)), 2, true, out);
+        }
+        assertEquals("a\nb\n", bytes.toString(StandardCharsets.UTF_8));
+    }
+}
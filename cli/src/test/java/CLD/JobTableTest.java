@@ -0,0 +1,87 @@
+package CLD;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+
+class JobTableTest {
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private static String output(JobTable.Job job) throws InterruptedException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        job.follow(new PrintStream(bytes, true));
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void waitReturnsStatusAndOutput() throws InterruptedException {
+        JobTable jobs = new JobTable(2);
+        JobTable.Job job = jobs.start("echo", false, out -> {
+            out.println("hello");
+            return 3;
+        });
+
+        assertEquals("hello\n", output(job));
+        assertEquals(3, job.await());
+        assertEquals(JobTable.State.DONE, job.state());
+        assertTrue(job.describe().contains("Exit 3"), job.describe());
+    }
+
+    @Test
+    void killInterruptsRunningJob() {
+        JobTable jobs = new JobTable(1);
+        CountDownLatch started = new CountDownLatch(1);
+        JobTable.Job job = jobs.start("sleep", true, out -> {
+            started.countDown();
+            try {
+                Thread.sleep(Long.MAX_VALUE);
+                return 0;
+            } catch (InterruptedException e) {
+                return 1;
+            }
+        });
+
+        int status = assertTimeoutPreemptively(TIMEOUT, () -> {
+            started.await();
+            job.kill();
+            return job.await();
+        });
+        assertEquals(1, status);
+        assertTrue(job.describe().contains("Killed"), job.describe());
+    }
+
+    @Test
+    void killedWaitingJobNeverStarts() throws InterruptedException {
+        JobTable jobs = new JobTable(1);
+        CountDownLatch release = new CountDownLatch(1);
+        JobTable.Job blocker = jobs.start("block", false, out -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                return 1;
+            }
+            return 0;
+        });
+        boolean[] ran = {false};
+        JobTable.Job waiting = jobs.start("never", false, out -> {
+            ran[0] = true;
+            return 0;
+        });
+
+        waiting.kill();
+        release.countDown();
+        assertEquals(0, blocker.await());
+        waiting.await();
+        assertFalse(ran[0]);
+        assertTrue(waiting.describe().contains("Killed"), waiting.describe());
+    }
+}
@@ -0,0 +1,87 @@
+package CLD;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ListEngineTest {
+    @TempDir
+    Path dir;
+
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final PrintStream out = new PrintStream(bytes, true);
+
+    private List<String> lines() {
+        return bytes.toString(StandardCharsets.UTF_8).lines().toList();
+    }
+
+    private List<String> createFiles(int count) throws IOException {
+        List<String> names = new ArrayList<>();
+        Random random = new Random(42);
+        for (int i = 0; i < count; i++) {
+            names.add(Integer.toString(random.nextInt(Integer.MAX_VALUE), 36) + "-" + i);
+        }
+        for (String name : names) {
+            Files.createFile(dir.resolve(name));
+        }
+        Collections.sort(names);
+        return names;
+    }
+
+    @Test
+    void sortsSmallDirectoryInMemory() throws IOException {
+        List<String> names = createFiles(100);
+
+        ListEngine.listSorted(dir, false, out);
+
+        assertEquals(names, lines());
+    }
+
+    @Test
+    void mergesSpilledRunsInOrder() throws IOException {
+        // two full runs on disk plus a partial one
+        List<String> names = createFiles(ListEngine.SORT_BATCH_SIZE * 2 + 50);
+
+        ListEngine.listSorted(dir, false, out);
+
+        assertEquals(names, lines());
+    }
+
+    @Test
+    void longFormatShowsTypeAndSize() throws IOException {
+        Files.writeString(dir.resolve("b.txt"), "hello");
+        Files.createDirectory(dir.resolve("a"));
+
+        ListEngine.listSorted(dir, true, out);
+
+        List<String> lines = lines();
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).startsWith("d "), lines.get(0));
+        assertTrue(lines.get(0).endsWith(" a"), lines.get(0));
+        assertTrue(lines.get(1).matches("- +5 \\d{4}-\\d\\d-\\d\\d \\d\\d:\\d\\d b\\.txt"), lines.get(1));
+    }
+
+    @Test
+    void unsortedListsEveryEntry() throws IOException {
+        List<String> names = createFiles(20);
+
+        ListEngine.listUnsorted(dir, false, out);
+
+        List<String> listed = new ArrayList<>(lines());
+        Collections.sort(listed);
+        assertEquals(names, listed);
+    }
+}
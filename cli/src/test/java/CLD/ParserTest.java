@@ -0,0 +1,90 @@
+package CLD;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class ParserTest {
+    private final Parser parser = new Parser();
+
+    private CommandLine parse(String line) {
+        assertTrue(parser.parse(line), parser.getError());
+        return parser.getCommandLine();
+    }
+
+    private void assertInvalid(String line, String error) {
+        assertFalse(parser.parse(line));
+        assertEquals(error, parser.getError());
+    }
+
+    @Test
+    void quotedTextIsOneLiteralWord() {
+        CommandLine line = parse("cat \"a b.txt\" 'x|y;z&>w' pre\"fix\"ed '' \"it's\"");
+        assertEquals(1, line.size());
+        assertArrayEquals(new String[]{"cat", "a b.txt", "x|y;z&>w", "prefixed", "", "it's"},
+                line.pipeline(0).stages.get(0));
+    }
+
+    @Test
+    void pipeSplitsStages() {
+        CommandLine.Pipeline pipeline = parse("cat f.txt|grep -i x | wc -l").pipeline(0);
+        assertEquals(3, pipeline.stages.size());
+        assertArrayEquals(new String[]{"cat", "f.txt"}, pipeline.stages.get(0));
+        assertArrayEquals(new String[]{"grep", "-i", "x"}, pipeline.stages.get(1));
+        assertArrayEquals(new String[]{"wc", "-l"}, pipeline.stages.get(2));
+        assertNull(pipeline.redirectFile);
+        assertFalse(pipeline.background);
+    }
+
+    @Test
+    void connectorsJoinPipelines() {
+        CommandLine line = parse("mkdir d && cd d || echo failed; ls");
+        assertEquals(4, line.size());
+        assertEquals(CommandLine.Connector.SEQUENCE, line.connector(0));
+        assertEquals(CommandLine.Connector.AND, line.connector(1));
+        assertEquals(CommandLine.Connector.OR, line.connector(2));
+        assertEquals(CommandLine.Connector.SEQUENCE, line.connector(3));
+        assertArrayEquals(new String[]{"echo", "failed"}, line.pipeline(2).stages.get(0));
+    }
+
+    @Test
+    void ampersandRunsInBackground() {
+        CommandLine line = parse("zip -r out.zip data & ls &");
+        assertEquals(2, line.size());
+        assertTrue(line.pipeline(0).background);
+        assertTrue(line.pipeline(1).background);
+        assertArrayEquals(new String[]{"ls"}, line.pipeline(1).stages.get(0));
+    }
+
+    @Test
+    void redirection() {
+        CommandLine line = parse("ls > \"out file.txt\"; cat a >>b");
+        assertEquals("out file.txt", line.pipeline(0).redirectFile);
+        assertFalse(line.pipeline(0).append);
+        assertEquals("b", line.pipeline(1).redirectFile);
+        assertTrue(line.pipeline(1).append);
+    }
+
+    @Test
+    void malformedLines() {
+        assertInvalid("echo \"open", "Error: Unmatched quotes in command.");
+        assertInvalid("ls >", "Error: Missing redirection file name.");
+        assertInvalid("ls > | wc", "Error: Missing redirection file name.");
+        assertInvalid("| wc", "Error: Invalid pipeline syntax.");
+        assertInvalid("ls |", "Error: Invalid pipeline syntax.");
+        assertInvalid("ls &&", "Error: Invalid command syntax.");
+        assertInvalid("; ls", "Error: Invalid command syntax.");
+    }
+
+    @Test
+    void repeatedLineIsCached() {
+        CommandLine first = parse("ls -l");
+        parse("pwd");
+        assertSame(first, parse("ls -l"));
+    }
+}
@@ -0,0 +1,52 @@
+package CLD;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ServerTest {
+    @TempDir
+    Path dir;
+
+    private List<String> entries() throws IOException {
+        try (Stream<Path> entries = Files.list(dir)) {
+            return entries.map(p -> p.getFileName().toString()).collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    void unixSocketIsOwnerOnly() throws IOException {
+        Path socket = dir.resolve("cli.sock");
+        UnixDomainSocketAddress address = UnixDomainSocketAddress.of(socket);
+        try (Server server = new Server(address, 1, 60, 1)) {
+            assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(socket)));
+            // the directory it was bound in is gone
+            assertEquals(List.of("cli.sock"), entries());
+            try (SocketChannel client = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+                client.connect(address);
+            }
+        }
+        assertFalse(Files.exists(socket));
+    }
+
+    @Test
+    void existingSocketFileIsRefused() throws IOException {
+        Path socket = Files.createFile(dir.resolve("cli.sock"));
+        assertThrows(IOException.class, () -> new Server(UnixDomainSocketAddress.of(socket), 1, 60, 1));
+        assertEquals(List.of("cli.sock"), entries());
+    }
+}
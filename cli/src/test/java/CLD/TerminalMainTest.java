@@ -0,0 +1,67 @@
+package CLD;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Runs Terminal.main in a child JVM, since it ends with System.exit. */
+class TerminalMainTest {
+    @TempDir
+    Path dir;
+
+    private String stdout;
+    private String stderr;
+
+    private int run(String... args) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command().orElse("java"));
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(Terminal.class.getName());
+        command.addAll(List.of(args));
+
+        Path out = dir.resolve("stdout.txt");
+        Path err = dir.resolve("stderr.txt");
+        Process process = new ProcessBuilder(command).directory(dir.toFile())
+                .redirectOutput(out.toFile()).redirectError(err.toFile()).start();
+        assertTrue(process.waitFor(30, TimeUnit.SECONDS), "Terminal did not exit");
+        stdout = Files.readString(out, StandardCharsets.UTF_8);
+        stderr = Files.readString(err, StandardCharsets.UTF_8);
+        return process.exitValue();
+    }
+
+    @Test
+    void commandExitsWithItsStatus() throws IOException, InterruptedException {
+        Files.writeString(dir.resolve("notes.txt"), "needle\nhay\n");
+
+        assertEquals(0, run("-c", "grep needle notes.txt"));
+        assertEquals("needle\n", stdout);
+
+        assertEquals(1, run("-c", "grep missing notes.txt"));
+        assertEquals("", stdout);
+    }
+
+    @Test
+    void failingCommandReportsOnStderr() throws IOException, InterruptedException {
+        assertEquals(1, run("-c", "cat missing.txt"));
+        assertTrue(stderr.contains("missing.txt"), stderr);
+        // no banner, prompt or batch summary around the command
+        assertEquals("", stdout);
+    }
+
+    @Test
+    void missingCommandIsUsageError() throws IOException, InterruptedException {
+        assertEquals(2, run("-c"));
+        assertTrue(stderr.startsWith("Usage: Terminal"), stderr);
+    }
+}
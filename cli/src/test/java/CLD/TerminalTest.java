@@ -0,0 +1,246 @@
+package CLD;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TerminalTest {
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private final DirectoryCache cache = new DirectoryCache();
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    private final PrintStream out = new PrintStream(output, true);
+    private final Terminal terminal = new Terminal(cache, 2, out, out);
+
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    void enter() {
+        assertEquals(0, terminal.runLine("cd " + dir));
+    }
+
+    @AfterEach
+    void close() {
+        cache.close();
+    }
+
+    private String output() {
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void finishJobsKillsFollowingTail() throws IOException {
+        Files.writeString(dir.resolve("app.log"), "first\n");
+        assertEquals(0, terminal.runLine("tail -f app.log > out.txt &"));
+        assertEquals(0, terminal.runLine("ls"));
+
+        assertTimeoutPreemptively(TIMEOUT, terminal::finishJobs);
+        assertTrue(output().contains("Killed"), output());
+    }
+
+    @Test
+    void finishJobsLetsOtherJobsComplete() throws IOException {
+        Files.writeString(dir.resolve("a.txt"), "x\n".repeat(1000));
+        assertEquals(0, terminal.runLine("wc -l a.txt > count.txt &"));
+
+        assertTimeoutPreemptively(TIMEOUT, terminal::finishJobs);
+        assertTrue(output().contains("Done"), output());
+        assertTrue(Files.readString(dir.resolve("count.txt")).contains("1000"));
+    }
+
+    @Test
+    void pipelineEndsWhenLastStageStopsReading() throws IOException {
+        Files.write(dir.resolve("big.txt"), "0123456789abcdef\n".repeat(2 * 1024 * 1024).getBytes(StandardCharsets.US_ASCII));
+
+        int status = assertTimeoutPreemptively(TIMEOUT, () -> terminal.runLine("cat big.txt | head -n 2"));
+        assertEquals(0, status);
+        assertEquals("0123456789abcdef\n0123456789abcdef\n", output());
+    }
+
+    @Test
+    void pipelinePassesEverythingThrough() throws IOException {
+        Files.writeString(dir.resolve("lines.txt"), "a b\nc\n".repeat(100_000));
+
+        assertEquals(0, terminal.runLine("cat lines.txt | cat | wc -l"));
+        assertTrue(output().trim().startsWith("200000"), output());
+    }
+
+    @Test
+    void grepStatusSaysWhetherAnythingMatched() throws IOException {
+        Files.writeString(dir.resolve("log.txt"), "ok\nerror 1\n");
+
+        assertEquals(0, terminal.runLine("grep error log.txt"));
+        assertEquals(1, terminal.runLine("grep missing log.txt"));
+        assertEquals(0, terminal.runLine("cat log.txt | grep -c ok"));
+        assertEquals(1, terminal.runLine("grep -r missing ."));
+        assertEquals("error 1\n1\n", output());
+    }
+
+    @Test
+    void rmRefusesDotDotDotAndTheCurrentDirectory() throws IOException {
+        Path sub = Files.createDirectories(dir.resolve("sub/inner"));
+        Files.createFile(sub.resolve("keep"));
+        assertEquals(0, terminal.runLine("cd sub/inner"));
+
+        assertEquals(1, terminal.runLine("rm -rf ."));
+        assertEquals(1, terminal.runLine("rm -r .."));
+        assertEquals(1, terminal.runLine("rm -r ../"));
+        assertEquals(1, terminal.runLine("rm -r " + dir.resolve("sub")));
+        assertTrue(Files.exists(sub.resolve("keep")));
+        assertTrue(output().contains("Error: rm: .: refusing to remove '.' or '..' directory"), output());
+    }
+
+    @Test
+    void rmWithoutRecursionRemovesEmptyDirectories() throws IOException {
+        Files.createDirectories(dir.resolve("empty"));
+        Files.createDirectories(dir.resolve("full/x"));
+
+        assertEquals(0, terminal.runLine("rm empty"));
+        assertEquals(1, terminal.runLine("rm full"));
+        assertEquals(0, terminal.runLine("rm -f missing"));
+        assertEquals(1, terminal.runLine("rm missing"));
+        assertFalse(Files.exists(dir.resolve("empty")));
+        assertTrue(Files.exists(dir.resolve("full/x")));
+        assertTrue(output().contains("Error: rm: full: Directory not empty (use rm -r)"), output());
+    }
+
+    @Test
+    void catCopiesRawBytes() throws IOException {
+        byte[] binary = new byte[300_000];
+        for (int i = 0; i < binary.length; i++) {
+            binary[i] = (byte) (i * 31);
+        }
+        Files.write(dir.resolve("data.bin"), binary);
+        Files.writeString(dir.resolve("crlf.txt"), "a\r\nb");
+
+        assertEquals(0, terminal.runLine("cat data.bin > copy.bin"));
+        assertArrayEquals(binary, Files.readAllBytes(dir.resolve("copy.bin")));
+
+        assertEquals(0, terminal.runLine("cat crlf.txt crlf.txt"));
+        assertEquals("a\r\nba\r\nb", output());
+    }
+
+    @Test
+    void catGoesOnAfterMissingFile() throws IOException {
+        Files.writeString(dir.resolve("a.txt"), "A");
+
+        assertEquals(1, terminal.runLine("cat missing.txt a.txt"));
+        assertEquals("Error: File not found: missing.txt\nA", output());
+    }
+
+    @Test
+    void cdIntoZipArchive() throws IOException {
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(dir.resolve("archive.zip")))) {
+            zip.putNextEntry(new ZipEntry("docs/"));
+            zip.putNextEntry(new ZipEntry("docs/readme.txt"));
+            zip.write("inside the archive\n".getBytes(StandardCharsets.UTF_8));
+            zip.putNextEntry(new ZipEntry("top.txt"));
+            zip.write("top\n".getBytes(StandardCharsets.UTF_8));
+        }
+        Path archive = dir.toRealPath().resolve("archive.zip");
+
+        assertEquals(0, terminal.runLine("cd archive.zip"));
+        assertEquals(archive.toString(), terminal.pwd());
+        assertEquals(0, terminal.runLine("ls"));
+        assertEquals("docs\ntop.txt\n", output());
+
+        output.reset();
+        assertEquals(0, terminal.runLine("cd docs"));
+        assertEquals(archive + "/docs", terminal.pwd());
+        assertEquals(0, terminal.runLine("cat readme.txt"));
+        assertEquals("inside the archive\n", output());
+        assertEquals(0, terminal.runLine("cp readme.txt " + dir.resolve("copy.txt")));
+        assertEquals("inside the archive\n", Files.readString(dir.resolve("copy.txt")));
+
+        // archives are only read
+        assertEquals(1, terminal.runLine("mkdir new"));
+
+        assertEquals(0, terminal.runLine("cd .."));
+        assertEquals(0, terminal.runLine("cd .."));
+        assertEquals(dir.toRealPath().toString(), terminal.pwd());
+    }
+
+    @Test
+    void batchRunsEveryLine() throws IOException {
+        String script = "mkdir a\n\ncat missing.txt\nmkdir b\n";
+
+        assertEquals(0, terminal.runBatch(new BufferedReader(new StringReader(script)), false));
+        assertTrue(Files.isDirectory(dir.resolve("a")));
+        assertTrue(Files.isDirectory(dir.resolve("b")));
+        // the blank line is not a command
+        assertTrue(output().contains("3 commands in"), output());
+    }
+
+    @Test
+    void batchStopsAtFirstErrorWhenAsked() throws IOException {
+        String script = "mkdir a\ncat missing.txt\nmkdir b\n";
+
+        assertEquals(1, terminal.runBatch(new BufferedReader(new StringReader(script)), true));
+        assertTrue(Files.isDirectory(dir.resolve("a")));
+        assertFalse(Files.exists(dir.resolve("b")));
+        assertTrue(output().contains("Stopped at line with error: cat missing.txt"), output());
+        assertTrue(output().contains("2 commands in"), output());
+    }
+
+    @Test
+    void backgroundJobKeepsItsOwnDirectory() throws IOException {
+        Files.createDirectory(dir.resolve("sub"));
+        Files.writeString(dir.resolve("here.txt"), "");
+        String start = terminal.pwd();
+
+        // cd in a job or a pipeline stage leaves the session where it is
+        assertEquals(0, terminal.runLine("cd sub &"));
+        assertEquals(0, terminal.runLine("cd sub | pwd"));
+        assertEquals(0, terminal.runLine("wait"));
+        assertEquals(start, terminal.pwd());
+
+        // a job keeps the directory it was started in after the session moves on
+        assertEquals(0, terminal.runLine("ls > list.txt &"));
+        assertEquals(0, terminal.runLine("cd sub"));
+        assertEquals(0, terminal.runLine("wait"));
+        assertTrue(Files.readString(dir.resolve("list.txt")).contains("here.txt"));
+        assertEquals(dir.resolve("sub").toRealPath().toString(), terminal.pwd());
+    }
+
+    @Test
+    void jfrRecordsCommandEvents() throws IOException {
+        Files.writeString(dir.resolve("a.txt"), "A");
+
+        assertEquals(0, terminal.runLine("jfr start"));
+        assertEquals(1, terminal.runLine("jfr start"));
+        assertEquals(0, terminal.runLine("ls -U"));
+        assertEquals(1, terminal.runLine("cat missing.txt"));
+        assertEquals(0, terminal.runLine("jfr stop session.jfr"));
+        assertEquals(1, terminal.runLine("jfr stop"));
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(dir.resolve("session.jfr"));
+        assertTrue(events.stream().anyMatch(e -> e.getEventType().getName().equals("CLD.Command")
+                && e.getString("command").equals("cat") && e.getInt("status") == 1));
+        assertTrue(events.stream().anyMatch(e -> e.getEventType().getName().equals("CLD.DirectoryScan")
+                && e.getString("operation").equals("ls") && e.getInt("entries") == 1));
+    }
+}
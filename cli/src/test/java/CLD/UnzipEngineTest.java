@@ -0,0 +1,102 @@
+package CLD;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class UnzipEngineTest {
+    @TempDir
+    Path dir;
+
+    private final ByteArrayOutputStream log = new ByteArrayOutputStream();
+
+    private File zip(String... namesAndContents) throws IOException {
+        File zipFile = dir.resolve("in.zip").toFile();
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zipFile.toPath()))) {
+            for (int i = 0; i < namesAndContents.length; i += 2) {
+                out.putNextEntry(new ZipEntry(namesAndContents[i]));
+                out.write(namesAndContents[i + 1].getBytes(StandardCharsets.UTF_8));
+                out.closeEntry();
+            }
+        }
+        return zipFile;
+    }
+
+    private int extract(File zipFile, List<String> patterns) throws IOException {
+        File destination = Files.createDirectories(dir.resolve("out")).toFile();
+        return UnzipEngine.extract(zipFile, destination, patterns, 2, new PrintStream(log, true), new LongAdder());
+    }
+
+    @Test
+    void extractsSelectedEntries() throws IOException {
+        File zipFile = zip("a.txt", "first", "sub/b.log", "second", "sub/c.txt", "third");
+
+        assertEquals(2, extract(zipFile, List.of("*.txt")));
+        assertEquals("first", Files.readString(dir.resolve("out/a.txt")));
+        assertEquals("third", Files.readString(dir.resolve("out/sub/c.txt")));
+        assertFalse(Files.exists(dir.resolve("out/sub/b.log")));
+    }
+
+    @Test
+    void truncatedArchiveIsReadInOrder() throws IOException {
+        File zipFile = zip("a.txt", "first", "b.txt", "second");
+        // cut off the central directory
+        try (RandomAccessFile file = new RandomAccessFile(zipFile, "rw")) {
+            file.setLength(file.length() - 40);
+        }
+
+        assertEquals(2, extract(zipFile, List.of()));
+        assertEquals("second", Files.readString(dir.resolve("out/b.txt")));
+    }
+
+    @Test
+    void corruptEntryFailsWithoutStartingOver() throws IOException {
+        String name = "b.txt";
+        File zipFile = zip("a.txt", "first", name, "second ".repeat(100));
+        long secondEntry;
+        try (java.util.zip.ZipFile zip = new java.util.zip.ZipFile(zipFile)) {
+            secondEntry = 30 + 5 + zip.getEntry("a.txt").getCompressedSize() + 16; // a.txt's header, data and descriptor
+        }
+        try (RandomAccessFile file = new RandomAccessFile(zipFile, "rw")) {
+            // a deflate block of the reserved type 3
+            file.seek(secondEntry + 30 + name.length());
+            file.write(0xFF);
+        }
+
+        assertThrows(IOException.class, () -> extract(zipFile, List.of()));
+        String printed = log.toString(StandardCharsets.UTF_8);
+        assertEquals(printed.indexOf("a.txt"), printed.lastIndexOf("a.txt"), printed);
+    }
+
+    @Test
+    void zipSlipIsRefused() throws IOException {
+        File destination = dir.toFile();
+        assertThrows(IOException.class, () -> UnzipEngine.checkedTarget(destination, "../evil"));
+        assertThrows(IOException.class, () -> UnzipEngine.checkedTarget(destination, "a/../../evil"));
+        // a sibling whose name starts with the destination's isn't inside it
+        assertThrows(IOException.class, () -> UnzipEngine.checkedTarget(destination, "../" + dir.getFileName() + "-other/x"));
+        assertEquals(new File(destination, "a/b"), UnzipEngine.checkedTarget(destination, "a/b"));
+    }
+
+    @Test
+    void rootDestinationAcceptsEntries() throws IOException {
+        File root = new File(File.separator);
+        assertEquals(new File(root, "tmp/x"), UnzipEngine.checkedTarget(root, "tmp/x"));
+    }
+}
@@ -0,0 +1,191 @@
+package CLD;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ZipEngineTest {
+    private final PrintStream log = new PrintStream(new ByteArrayOutputStream());
+
+    @TempDir
+    Path dir;
+
+    private File file(String name, String content) throws IOException {
+        return Files.writeString(dir.resolve(name), content).toFile();
+    }
+
+    private static byte[] read(ZipFile zip, String name) throws IOException {
+        try (InputStream in = zip.getInputStream(zip.getEntry(name))) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static byte[] text(int size) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; text.length() < size; i++) {
+            text.append("line ").append(i).append(" of some compressible text\n");
+        }
+        return text.substring(0, size).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    // Signature of the ZIP64 end of central directory locator, which sits just before the end record
+    private static boolean hasZip64End(File zipFile) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(zipFile, "r")) {
+            if (file.length() < 42) return false;
+            file.seek(file.length() - 22 - 20);
+            return Integer.reverseBytes(file.readInt()) == 0x07064b50;
+        }
+    }
+
+    @Test
+    void roundTrip() throws IOException {
+        // several deflate chunks, so the entry is compressed by more than one worker
+        byte[] large = text(ZipEngine.CHUNK_SIZE * 3 + 12345);
+        byte[] random = new byte[100_000];
+        new Random(1).nextBytes(random);
+        Path data = Files.createDirectories(dir.resolve("data/sub"));
+        Files.write(data.resolve("large.txt"), large);
+        Files.write(data.resolve("random.bin"), random);
+        Files.write(data.resolve("empty"), new byte[0]);
+
+        File zipFile = dir.resolve("out.zip").toFile();
+        ZipEngine engine = new ZipEngine(3, 6);
+        engine.addDirectory("data/sub", data.toFile(), null);
+        engine.addFile("data/sub/large.txt", data.resolve("large.txt").toFile(), null);
+        engine.addFile("data/sub/random.bin", data.resolve("random.bin").toFile(), null);
+        engine.addFile("data/sub/empty", data.resolve("empty").toFile(), null);
+        engine.writeTo(zipFile, log);
+
+        try (ZipFile zip = new ZipFile(zipFile)) {
+            assertEquals(4, zip.size());
+            assertTrue(zip.getEntry("data/sub/").isDirectory());
+            assertArrayEquals(large, read(zip, "data/sub/large.txt"));
+            assertArrayEquals(random, read(zip, "data/sub/random.bin"));
+            assertArrayEquals(new byte[0], read(zip, "data/sub/empty"));
+        }
+
+        Path extracted = Files.createDirectory(dir.resolve("extracted"));
+        assertEquals(4, UnzipEngine.extract(zipFile, extracted.toFile(), List.of(), 2, log, new LongAdder()));
+        assertArrayEquals(large, Files.readAllBytes(extracted.resolve("data/sub/large.txt")));
+        assertArrayEquals(random, Files.readAllBytes(extracted.resolve("data/sub/random.bin")));
+        assertEquals(0, Files.size(extracted.resolve("data/sub/empty")));
+        assertFalse(hasZip64End(zipFile));
+    }
+
+    @Test
+    void zip64EndRecordFromEntryCount() throws IOException {
+        File below = dir.resolve("below.zip").toFile();
+        File at = dir.resolve("at.zip").toFile();
+        writeEmptyEntries(below, 0xFFFF - 1);
+        writeEmptyEntries(at, 0xFFFF);
+
+        assertFalse(hasZip64End(below));
+        assertTrue(hasZip64End(at));
+        try (ZipFile zip = new ZipFile(at)) {
+            assertEquals(0xFFFF, zip.size());
+        }
+        try (ZipIndex index = ZipIndex.open(at)) {
+            assertEquals(0xFFFF, index.records().size());
+        }
+    }
+
+    private static void writeEmptyEntries(File zipFile, int count) throws IOException {
+        try (ZipWriter writer = new ZipWriter(zipFile)) {
+            for (int i = 0; i < count; i++) {
+                writer.beginEntry("e" + i, ZipWriter.STORED, 0, 0);
+                writer.endEntry(0, 0);
+            }
+        }
+    }
+
+    @Test
+    void incompressibleEntriesAreStored() throws IOException {
+        byte[] random = new byte[200_000];
+        new Random(2).nextBytes(random);
+        Files.write(dir.resolve("random.bin"), random);
+        Files.write(dir.resolve("text.txt"), text(200_000));
+        Files.write(dir.resolve("image.png"), text(200_000));
+
+        File zipFile = dir.resolve("out.zip").toFile();
+        ZipEngine engine = new ZipEngine(2, 6);
+        for (String name : List.of("random.bin", "text.txt", "image.png")) {
+            engine.addFile(name, dir.resolve(name).toFile(), null);
+        }
+        engine.writeTo(zipFile, log);
+
+        try (ZipFile zip = new ZipFile(zipFile)) {
+            assertEquals(ZipEntry.STORED, zip.getEntry("random.bin").getMethod());
+            assertEquals(ZipEntry.DEFLATED, zip.getEntry("text.txt").getMethod());
+            // known compressed formats are stored without a trial, whatever they hold
+            assertEquals(ZipEntry.STORED, zip.getEntry("image.png").getMethod());
+            assertArrayEquals(random, read(zip, "random.bin"));
+            assertArrayEquals(text(200_000), read(zip, "image.png"));
+        }
+        assertTrue(engine.report().startsWith("1 deflated, 2 stored"), engine.report());
+    }
+
+    @Test
+    void levelZeroStoresEverything() throws IOException {
+        Files.write(dir.resolve("text.txt"), text(200_000));
+        File zipFile = dir.resolve("out.zip").toFile();
+        ZipEngine engine = new ZipEngine(1, 0);
+        engine.addFile("text.txt", dir.resolve("text.txt").toFile(), null);
+        engine.writeTo(zipFile, log);
+
+        try (ZipFile zip = new ZipFile(zipFile)) {
+            assertEquals(ZipEntry.STORED, zip.getEntry("text.txt").getMethod());
+            assertArrayEquals(text(200_000), read(zip, "text.txt"));
+        }
+    }
+
+    @Test
+    void updateReusesUnchangedEntries() throws IOException {
+        File a = file("a.txt", "unchanged ".repeat(100));
+        File b = file("b.txt", "before");
+        File zipFile = dir.resolve("out.zip").toFile();
+
+        ZipEngine engine = new ZipEngine(1, 6);
+        engine.addFile("a.txt", a, null);
+        engine.addFile("b.txt", b, null);
+        engine.writeTo(zipFile, log);
+
+        Files.writeString(b.toPath(), "after, and longer");
+        File c = file("c.txt", "new");
+        try (ZipIndex previous = ZipIndex.open(zipFile)) {
+            engine = new ZipEngine(1, 6);
+            engine.addFile("a.txt", a, null);
+            engine.addFile("b.txt", b, null);
+            engine.addFile("c.txt", c, null);
+            engine.update(previous);
+            engine.writeTo(zipFile, log);
+        }
+        assertEquals(1, engine.reusedEntries());
+        assertEquals(2, engine.compressedEntries());
+
+        try (ZipFile zip = new ZipFile(zipFile)) {
+            assertEquals(3, zip.size());
+            assertArrayEquals(Files.readAllBytes(a.toPath()), read(zip, "a.txt"));
+            assertEquals("after, and longer", new String(read(zip, "b.txt"), StandardCharsets.UTF_8));
+            assertEquals("new", new String(read(zip, "c.txt"), StandardCharsets.UTF_8));
+        }
+    }
+}